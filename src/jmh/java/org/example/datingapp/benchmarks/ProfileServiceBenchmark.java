@@ -0,0 +1,62 @@
+package org.example.datingapp.benchmarks;
+
+import org.example.datingapp.datasets.DatasetGenerator;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.ProfileSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProfileServiceBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 50;
+
+    @Benchmark
+    public Profile registerProfile(SeededDataset dataset) {
+        return dataset.profileService().registerProfile(
+                "Name",
+                dataset.nextRegistrationEmail(),
+                SeededDataset.PASSWORD,
+                DatasetGenerator.randomOpenInfo(new Random(ThreadLocalRandom.current().nextLong())),
+                "Closed info"
+        );
+    }
+
+    @Benchmark
+    public Profile loginProfile(SeededDataset dataset) {
+        return dataset.profileService().loginProfile(dataset.randomEmail(), SeededDataset.PASSWORD);
+    }
+
+    @Benchmark
+    public Page<ProfileSummary> getAllWithPagination(SeededDataset dataset) {
+        int page = ThreadLocalRandom.current().nextInt(PAGES);
+
+        return dataset.profileService().getAllWithPaginationAndKeyword(page, PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public Page<ProfileSummary> getAllWithPaginationAndKeyword(SeededDataset dataset) {
+        int page = ThreadLocalRandom.current().nextInt(PAGES);
+
+        return dataset.profileService().getAllWithPaginationAndKeyword(page, PAGE_SIZE, SeededDataset.KEYWORD);
+    }
+
+    @Benchmark
+    public Page<ProfileSummary> getAllApprovedProfiles(SeededDataset dataset) {
+        return dataset.profileService().getAllApprovedProfiles(dataset.randomProfileId(), 0, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.datingapp.benchmarks;
+
+import org.example.datingapp.models.RelationView;
+import org.example.datingapp.models.enums.LikeResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RelationServiceBenchmark {
+    @Benchmark
+    public LikeResult saveRelationNewLike(SeededDataset dataset) {
+        long[] pair = dataset.nextFreshPair();
+
+        return dataset.relationService().saveRelation(pair[0], pair[1]);
+    }
+
+    @Benchmark
+    public LikeResult saveRelationMutualMatch(SeededDataset dataset, PendingLike pendingLike) {
+        return dataset.relationService().saveRelation(pendingLike.aimId, pendingLike.initiatorId);
+    }
+
+    @Benchmark
+    public List<RelationView> getAllProfileRelations(SeededDataset dataset) {
+        return dataset.relationService().getAllProfileRelations(dataset.randomProfileId());
+    }
+
+    @Benchmark
+    public long[] getLikedByIds(SeededDataset dataset) {
+        return dataset.relationService().getLikedByIds(dataset.randomProfileId());
+    }
+
+    @Benchmark
+    public boolean likes(SeededDataset dataset) {
+        return dataset.relationService().likes(dataset.randomProfileId(), dataset.randomProfileId());
+    }
+
+    /**
+     * A PENDING like created before every invocation, so that liking back always matches.
+     */
+    @State(Scope.Thread)
+    public static class PendingLike {
+        private long initiatorId;
+        private long aimId;
+
+        @Setup(Level.Invocation)
+        public void like(SeededDataset dataset) {
+            long[] pair = dataset.nextFreshPair();
+            initiatorId = pair[0];
+            aimId = pair[1];
+            dataset.relationService().saveRelation(initiatorId, aimId);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.datingapp.benchmarks;
+
+import org.example.datingapp.DatingAppApplication;
+import org.example.datingapp.datasets.DatasetGenerator;
+import org.example.datingapp.datasets.DatasetSpec;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.repositories.ProfileBatchRepository;
+import org.example.datingapp.services.ProfileService;
+import org.example.datingapp.services.RelationService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The application without its web layer, running on an embedded H2 database seeded by the
+ * dataset generator with profileCount profiles that send likesPerProfile likes on average, plus
+ * freshProfileCount profiles without any relation for benchmarks that need new pairs.
+ */
+@State(Scope.Benchmark)
+public class SeededDataset {
+    public static final String PASSWORD = DatasetGenerator.PASSWORD;
+    public static final String KEYWORD = "hiking";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Param("10000")
+    public int profileCount;
+
+    @Param("20")
+    public int likesPerProfile;
+
+    @Param("3000")
+    public int freshProfileCount;
+
+    private ConfigurableApplicationContext context;
+    private ProfileService profileService;
+    private RelationService relationService;
+    private long firstProfileId;
+    private long firstFreshProfileId;
+    private final AtomicLong nextFreshPair = new AtomicLong();
+    private final AtomicLong nextRegistration = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(DatingAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "logging.level.root=WARN",
+                        "logging.level.PrototypeLogger=WARN"
+                )
+                .run();
+        profileService = context.getBean(ProfileService.class);
+        relationService = context.getBean(RelationService.class);
+
+        DatasetSpec spec = new DatasetSpec(profileCount, likesPerProfile, 1.0, 60, 25, 15, 42);
+        firstProfileId = context.getBean(DatasetGenerator.class).generate(spec).getProfileIds()[0];
+        firstFreshProfileId = insertFreshProfiles(context.getBean(ProfileBatchRepository.class), new Random(42));
+
+        profileService.rebuildSearchIndex();
+        relationService.rebuildRelationGraph();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public ProfileService profileService() {
+        return profileService;
+    }
+
+    public RelationService relationService() {
+        return relationService;
+    }
+
+    public long randomProfileId() {
+        return firstProfileId + ThreadLocalRandom.current().nextInt(profileCount);
+    }
+
+    public String randomEmail() {
+        return "user" + ThreadLocalRandom.current().nextInt(profileCount) + "@example.com";
+    }
+
+    public String nextRegistrationEmail() {
+        return "registered" + nextRegistration.incrementAndGet() + "@example.com";
+    }
+
+    /**
+     * Returns a pair of fresh profiles, initiator first, that has never been returned before.
+     * Initiators come from the first half of the fresh profiles and aims from the second, so
+     * no pair is ever handed out in both directions. Fails once every pair was handed out,
+     * since reusing one would make saveRelation reject it.
+     */
+    public long[] nextFreshPair() {
+        long half = freshProfileCount / 2;
+        long pair = nextFreshPair.getAndIncrement();
+        if (pair >= half * half) {
+            throw new IllegalStateException("All " + half * half + " fresh pairs are used up; raise freshProfileCount "
+                    + "(currently " + freshProfileCount + ") or shorten the run.");
+        }
+
+        return new long[] {firstFreshProfileId + pair / half, firstFreshProfileId + half + pair % half};
+    }
+
+    private long insertFreshProfiles(ProfileBatchRepository profileBatchRepository, Random random) {
+        long firstId = -1;
+        List<Profile> batch = new ArrayList<>();
+
+        for (int i = 0; i < freshProfileCount; i++) {
+            Profile profile = new Profile();
+            profile.setName("Name " + i);
+            profile.setEmail("fresh" + i + "@example.com");
+            profile.setPassword(PASSWORD);
+            profile.setOpenInfo(DatasetGenerator.randomOpenInfo(random));
+            profile.setClosedInfo("Closed info " + i);
+            batch.add(profile);
+
+            if (batch.size() == INSERT_BATCH_SIZE || i == freshProfileCount - 1) {
+                profileBatchRepository.insertAll(batch);
+                if (firstId < 0) {
+                    firstId = batch.get(0).getId();
+                }
+                batch = new ArrayList<>();
+            }
+        }
+
+        return firstId;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.datingapp.caches;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.repositories.ProfileRepository;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded read-through cache of profiles by id. Eviction is size based (W-TinyLFU) with a
+ * time to live, and missing profiles are not cached. Callers that change or delete a profile
+ * must invalidate it.
+ */
+public class ProfileCache {
+    private final ProfileRepository profileRepository;
+    private final AsyncCache<Long, Profile> cache;
+
+    /**
+     * Loads run on the given executor. Only the future of a load is installed while the cache
+     * holds its internal lock, so waiting callers never block inside it.
+     */
+    public ProfileCache(
+            ProfileRepository profileRepository,
+            long maximumSize,
+            Duration timeToLive,
+            Executor loadExecutor
+    ) {
+        this.profileRepository = profileRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Returns the profile with the given id, loading it on a miss, or null if it does not exist.
+     * Concurrent misses on the same id wait for a single load instead of each querying the database.
+     */
+    public Profile get(Long id) {
+        CompletableFuture<Profile> profile = cache.get(id, (key, executor) -> CompletableFuture.supplyAsync(
+                () -> profileRepository.findById(key).orElse(null),
+                executor
+        ));
+
+        try {
+            return profile.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public Cache<Long, Profile> getNativeCache() {
+        return cache.synchronous();
+    }
+}
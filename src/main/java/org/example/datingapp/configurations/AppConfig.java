@@ -1,17 +1,44 @@
 package org.example.datingapp.configurations;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.datingapp.caches.ProfileCache;
+import org.example.datingapp.datasets.DatasetGenerator;
+import org.example.datingapp.datasets.DatasetSpec;
+import org.example.datingapp.graph.RelationGraph;
+import org.example.datingapp.repositories.ProfileBatchRepository;
 import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.repositories.RelationBatchRepository;
 import org.example.datingapp.repositories.RelationsRepository;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.example.datingapp.search.ProfileSearchIndex;
+import org.example.datingapp.services.CandidateFeedService;
+import org.example.datingapp.services.ExportService;
+import org.example.datingapp.services.ProfileImportService;
 import org.example.datingapp.services.ProfileService;
 import org.example.datingapp.services.RelationService;
+import org.example.datingapp.snapshots.SnapshotStore;
+import org.example.datingapp.versions.ContentVersions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
+import org.springframework.transaction.PlatformTransactionManager;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.OpenAPI;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
 
 @Configuration
 public class AppConfig {
@@ -25,16 +52,197 @@ public class AppConfig {
     }
 
     @Bean
-    public ProfileService profileService(ProfileRepository profileRepository) {
-        return new ProfileService(profileRepository, prototypeLogger());
+    public ProfileCache profileCache(
+            ProfileRepository profileRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.profile-cache.maximum-size}") long maximumSize,
+            @Value("${app.profile-cache.time-to-live}") Duration timeToLive,
+            @Qualifier("blockingLoadExecutor") Executor blockingLoadExecutor
+    ) {
+        ProfileCache profileCache = new ProfileCache(profileRepository, maximumSize, timeToLive, blockingLoadExecutor);
+        CaffeineCacheMetrics.monitor(meterRegistry, profileCache.getNativeCache(), "profiles");
+
+        return profileCache;
+    }
+
+    @Bean
+    public ProfileService profileService(
+            ProfileRepository profileRepository,
+            SparseFieldsRepository sparseFieldsRepository,
+            ProfileSearchIndex profileSearchIndex,
+            ProfileCache profileCache,
+            ContentVersions contentVersions
+    ) {
+        return new ProfileService(
+                profileRepository,
+                sparseFieldsRepository,
+                profileSearchIndex,
+                profileCache,
+                contentVersions,
+                prototypeLogger()
+        );
+    }
+
+    @Bean
+    public ProfileImportService profileImportService(
+            ProfileRepository profileRepository,
+            ProfileBatchRepository profileBatchRepository,
+            ProfileSearchIndex profileSearchIndex,
+            ObjectMapper objectMapper,
+            @Value("${app.import.batch-size}") int batchSize
+    ) {
+        return new ProfileImportService(
+                profileRepository,
+                profileBatchRepository,
+                profileSearchIndex,
+                objectMapper,
+                batchSize,
+                prototypeLogger()
+        );
+    }
+
+    @Bean
+    public ExportService exportService(
+            ProfileRepository profileRepository,
+            RelationsRepository relationsRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager
+    ) {
+        return new ExportService(
+                profileRepository,
+                relationsRepository,
+                entityManager,
+                transactionManager,
+                prototypeLogger()
+        );
     }
 
     @Bean
     public RelationService relationService(
             RelationsRepository relationsRepository,
-            ProfileRepository profileRepository
+            RelationBatchRepository relationBatchRepository,
+            SparseFieldsRepository sparseFieldsRepository,
+            ProfileRepository profileRepository,
+            ProfileCache profileCache,
+            RelationGraph relationGraph,
+            ContentVersions contentVersions,
+            ApplicationEventPublisher eventPublisher
+    ) {
+        return new RelationService(
+                relationsRepository,
+                relationBatchRepository,
+                sparseFieldsRepository,
+                profileRepository,
+                profileCache,
+                relationGraph,
+                contentVersions,
+                eventPublisher,
+                prototypeLogger()
+        );
+    }
+
+    @Bean
+    public CandidateFeedService candidateFeedService(
+            ProfileRepository profileRepository,
+            SparseFieldsRepository sparseFieldsRepository,
+            ProfileCache profileCache,
+            RelationGraph relationGraph,
+            @Qualifier("backgroundExecutor") Executor backgroundExecutor,
+            @Value("${app.feed.maximum-active-viewers}") long maximumActiveViewers,
+            @Value("${app.feed.idle-timeout}") Duration idleTimeout,
+            @Value("${app.feed.queue-size}") int queueSize,
+            @Value("${app.feed.refill-threshold}") int refillThreshold
     ) {
-        return new RelationService(relationsRepository, profileRepository, prototypeLogger());
+        return new CandidateFeedService(
+                profileRepository,
+                sparseFieldsRepository,
+                profileCache,
+                relationGraph,
+                backgroundExecutor,
+                maximumActiveViewers,
+                idleTimeout,
+                queueSize,
+                refillThreshold,
+                prototypeLogger()
+        );
+    }
+
+    @Bean
+    public DatasetGenerator datasetGenerator(
+            ProfileBatchRepository profileBatchRepository,
+            RelationBatchRepository relationBatchRepository
+    ) {
+        return new DatasetGenerator(profileBatchRepository, relationBatchRepository, prototypeLogger());
+    }
+
+    /**
+     * Loads the snapshot at app.snapshot.path into an empty database at startup and rewrites it
+     * every app.snapshot.interval and at shutdown, when the path is set.
+     */
+    @Bean
+    @ConditionalOnProperty("app.snapshot.path")
+    public SnapshotStore snapshotStore(
+            ProfileRepository profileRepository,
+            ProfileBatchRepository profileBatchRepository,
+            RelationBatchRepository relationBatchRepository,
+            ProfileService profileService,
+            RelationService relationService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.snapshot.path}") Path path
+    ) {
+        return new SnapshotStore(
+                path,
+                profileRepository,
+                profileBatchRepository,
+                relationBatchRepository,
+                profileService,
+                relationService,
+                transactionManager,
+                prototypeLogger()
+        );
+    }
+
+    /**
+     * Seeds a synthetic dataset at startup when app.dataset.profile-count is set, then rebuilds
+     * the search index and the relation graph from it, all before the web server starts. A
+     * database that already holds profiles, from persistent storage or a loaded snapshot, is not
+     * seeded again; declaring it after snapshotStore makes it run after the snapshot is loaded.
+     */
+    @Bean
+    @ConditionalOnProperty("app.dataset.profile-count")
+    public SmartInitializingSingleton datasetSeeder(
+            DatasetGenerator datasetGenerator,
+            ProfileRepository profileRepository,
+            ProfileService profileService,
+            RelationService relationService,
+            @Value("${app.dataset.profile-count}") int profileCount,
+            @Value("${app.dataset.likes-per-profile}") int likesPerProfile,
+            @Value("${app.dataset.popularity-exponent}") double popularityExponent,
+            @Value("${app.dataset.pending-weight}") int pendingWeight,
+            @Value("${app.dataset.approved-weight}") int approvedWeight,
+            @Value("${app.dataset.rejected-weight}") int rejectedWeight,
+            @Value("${app.dataset.seed}") long seed
+    ) {
+        DatasetSpec spec = new DatasetSpec(
+                profileCount,
+                likesPerProfile,
+                popularityExponent,
+                pendingWeight,
+                approvedWeight,
+                rejectedWeight,
+                seed
+        );
+
+        return () -> {
+            if (profileRepository.count() > 0) {
+                prototypeLogger().info("Database already holds profiles, skipping dataset generation");
+                return;
+            }
+
+            datasetGenerator.generate(spec);
+            profileService.rebuildSearchIndex();
+            relationService.rebuildRelationGraph();
+        };
     }
 
     @Bean
@@ -0,0 +1,82 @@
+package org.example.datingapp.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selects where blocking loads run, following spring.threads.virtual.enabled, which also moves
+ * Tomcat request handling and the async task executor used by streaming responses onto
+ * virtual threads.
+ */
+@Configuration
+@EnableScheduling
+public class ExecutionConfig {
+    /**
+     * Runs every blocking load on its own virtual thread, so that callers park instead of
+     * pinning their carrier while they wait inside a lock. Only ProfileCache needs it, because
+     * Caffeine installs a load inside a ConcurrentHashMap monitor. The other blocking paths
+     * already park without holding a monitor: PairLocks and the feed refill lock are
+     * ReentrantLocks, SingleFlight callers join a CompletableFuture, CandidateQueue never blocks
+     * inside its synchronized methods, and event writes have their own platform pool.
+     */
+    @Bean(name = "blockingLoadExecutor", destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualBlockingLoadExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Runs every blocking load directly on the calling request thread.
+     */
+    @Bean(name = "blockingLoadExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Executor platformBlockingLoadExecutor() {
+        return Runnable::run;
+    }
+
+    /**
+     * Runs background work, such as refilling candidate feeds, on virtual threads.
+     */
+    @Bean(name = "backgroundExecutor", destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualBackgroundExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Runs background work on a small pool of platform threads, off the request threads.
+     */
+    @Bean(name = "backgroundExecutor", destroyMethod = "close")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService platformBackgroundExecutor() {
+        return Executors.newFixedThreadPool(2, Thread.ofPlatform().name("background-", 0).daemon().factory());
+    }
+
+    /**
+     * Writes relation events to their streams in either mode. SseEmitter sends inside its
+     * monitor, so on a virtual thread a write stalled by a slow client would pin its carrier.
+     * RelationEventBroadcaster resizes this pool to replace threads held by stalled writes.
+     */
+    @Bean(name = "eventSendExecutor", destroyMethod = "close")
+    public ThreadPoolExecutor eventSendExecutor(@Value("${app.events.send-threads}") int sendThreads) {
+        return new ThreadPoolExecutor(
+                sendThreads,
+                sendThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("event-send-", 0).daemon().factory()
+        );
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.datingapp.configurations;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.datingapp.metrics.SqlStatementMetricsFilter;
+import org.example.datingapp.metrics.StatementCountingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Hot-path instrumentation exposed on /actuator/prometheus: timers for every class annotated
+ * with {@link io.micrometer.core.annotation.Timed}, the SQL statement count of every request,
+ * and the built-in http.server.requests and spring.data.repository.invocations timers, whose
+ * outcome and state tags carry the error rates.
+ */
+@Configuration
+public class MetricsConfig {
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public SqlStatementMetricsFilter sqlStatementMetricsFilter(MeterRegistry meterRegistry) {
+        return new SqlStatementMetricsFilter(meterRegistry);
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)) {
+                    return new StatementCountingDataSource(dataSource);
+                }
+
+                return bean;
+            }
+        };
+    }
+}
@@ -6,30 +6,56 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.example.datingapp.fields.FieldSet;
 import org.example.datingapp.models.Profile;
-import org.example.datingapp.models.Relation;
+import org.example.datingapp.models.ProfileImportReport;
+import org.example.datingapp.models.enums.ExportFormat;
+import org.example.datingapp.services.CandidateFeedService;
+import org.example.datingapp.services.ExportService;
+import org.example.datingapp.pagination.CursorPage;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.example.datingapp.services.ProfileImportService;
 import org.example.datingapp.services.ProfileService;
-import org.example.datingapp.services.RelationService;
+import org.example.datingapp.versions.ContentVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @Tag(name = "Profiles Controller", description = "Operations for working with profiles")
 @RequestMapping("/api/profiles")
 public class ProfileController {
     private final ProfileService profileService;
-    private final RelationService relationService;
+    private final ProfileImportService profileImportService;
+    private final ExportService exportService;
+    private final CandidateFeedService candidateFeedService;
+    private final ContentVersions contentVersions;
 
     @Autowired
-    public ProfileController(ProfileService profileService, RelationService relationService) {
+    public ProfileController(
+            ProfileService profileService,
+            ProfileImportService profileImportService,
+            ExportService exportService,
+            CandidateFeedService candidateFeedService,
+            ContentVersions contentVersions
+    ) {
         this.profileService = profileService;
-        this.relationService = relationService;
+        this.profileImportService = profileImportService;
+        this.exportService = exportService;
+        this.candidateFeedService = candidateFeedService;
+        this.contentVersions = contentVersions;
     }
 
     @PostMapping("/register")
@@ -73,6 +99,31 @@ public class ProfileController {
         }
     }
 
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    @Operation(
+            summary = "Import profiles",
+            description = "Registers profiles streamed as newline-delimited JSON, one profile per line, "
+                    + "and reports how many were imported together with the errors of failed lines.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Profiles to import, one JSON object per line",
+                    required = true,
+                    content = @Content(mediaType = "application/x-ndjson", schema = @Schema(
+                            example = "{ \"name\": \"John Doe\", \"email\": \"john.doe@example.com\", \"password\": \"securePassword\", \"openInfo\": \"Some info\", \"closedInfo\": \"Sensitive info\" }"
+                    ))
+            ),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Import finished, see the report for failed lines"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<ProfileImportReport> importProfiles(InputStream profiles) {
+        try {
+            return ResponseEntity.ok(profileImportService.importProfiles(profiles));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @PostMapping("/update")
     @Operation(
             summary = "Update profile",
@@ -254,17 +305,29 @@ public class ProfileController {
         }
     }
 
-    @GetMapping("/all")
+    @GetMapping(value = "/all", produces = {
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE,
+            ResponseFormats.SMILE_VALUE
+    })
     @Operation(
             summary = "Get all profiles",
-            description = "Retrieves a paginated list of all profiles with an optional keyword filter.",
+            description = "Retrieves a paginated list of all profiles with an optional keyword filter. "
+                    + "Passing a cursor (empty for the first page) switches to keyset pagination, "
+                    + "with the cursor of the next page returned in the X-Next-Cursor header. "
+                    + "Responds with JSON unless the Accept header asks for CBOR or Smile.",
             parameters = {
                     @Parameter(
                             name = "page",
-                            description = "Page number for pagination (0-based index)",
+                            description = "Page number for pagination (0-based index), ignored in cursor mode",
                             example = "0",
                             schema = @Schema(type = "integer", defaultValue = "0")
                     ),
+                    @Parameter(
+                            name = "cursor",
+                            description = "Opaque cursor from a previous X-Next-Cursor header",
+                            schema = @Schema(type = "string")
+                    ),
                     @Parameter(
                             name = "size",
                             description = "Number of profiles per page",
@@ -276,27 +339,59 @@ public class ProfileController {
                             description = "Optional keyword to filter profiles",
                             example = "John",
                             schema = @Schema(type = "string")
+                    ),
+                    @Parameter(
+                            name = "fields",
+                            description = "Optional comma-separated subset of id, name and openInfo to read and return",
+                            example = "name,openInfo",
+                            schema = @Schema(type = "string")
                     )
             },
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Profiles retrieved successfully"),
+                    @ApiResponse(responseCode = "200", description = "Profiles retrieved successfully, total count in X-Total-Count header"),
                     @ApiResponse(responseCode = "204", description = "No profiles found"),
-                    @ApiResponse(responseCode = "400", description = "Invalid pagination parameters"),
+                    @ApiResponse(responseCode = "400", description = "Invalid pagination parameters, cursor or unknown field"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
-    public ResponseEntity<List<Profile>> getProfiles(
+    public ResponseEntity<List<?>> getProfiles(
             @RequestParam(value = "page", defaultValue = "0") int page,
             @RequestParam(value = "size", defaultValue = "10") int size,
-            @RequestParam(value = "keyword", required = false) String keyword
+            @RequestParam(value = "keyword", required = false) String keyword,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "fields", required = false) String fields
     ) {
         try {
-            List<Profile> profiles = profileService.getAllWithPaginationAndKeyword(page * size, size, keyword);
+            FieldSet fieldSet = FieldSet.parse(fields, SparseFieldsRepository.PROFILE_FIELDS);
+
+            if (cursor != null) {
+                CursorPage<?> profiles = fieldSet == null
+                        ? profileService.getAllAfterCursor(cursor, size, keyword)
+                        : profileService.getAllAfterCursor(cursor, size, keyword, fieldSet);
+                // A keyword page whose profiles were all deleted is empty but may still have a next one.
+                if (profiles.isEmpty() && !profiles.hasNext()) {
+                    return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+                }
+
+                HttpHeaders headers = new HttpHeaders();
+                if (profiles.hasNext()) {
+                    headers.add("X-Next-Cursor", profiles.getNextCursor());
+                }
+
+                return ResponseEntity.ok().headers(headers).varyBy(HttpHeaders.ACCEPT).body(profiles.getContent());
+            }
+
+            Page<?> profiles = fieldSet == null
+                    ? profileService.getAllWithPaginationAndKeyword(page, size, keyword)
+                    : profileService.getAllWithPaginationAndKeyword(page, size, keyword, fieldSet);
             if (profiles.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
             }
 
-            return ResponseEntity.ok(profiles);
+            return ResponseEntity.ok()
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .header("X-Total-Count", String.valueOf(profiles.getTotalElements()))
+                    .body(profiles.getContent());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
@@ -304,28 +399,105 @@ public class ProfileController {
         }
     }
 
-    @GetMapping("/all/approved")
+    @GetMapping("/export")
+    @Operation(
+            summary = "Export all profiles",
+            description = "Streams every profile as newline-delimited JSON or CSV, for analytics snapshots.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the logged-in user stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    ),
+                    @Parameter(
+                            name = "format",
+                            description = "Output format, ndjson or csv",
+                            example = "ndjson",
+                            schema = @Schema(type = "string", defaultValue = "ndjson")
+                    )
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Profiles streamed successfully"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format or unknown export format"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> exportProfiles(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                    .body(output -> exportService.exportProfiles(profileId, exportFormat, output));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping(value = "/all/approved", produces = {
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE,
+            ResponseFormats.SMILE_VALUE
+    })
     @Operation(
             summary = "Get all approved profiles",
-            description = "Retrieves a list of approved profiles based on relations of the logged-in user.",
+            description = "Retrieves a paginated list of approved profiles based on relations of the logged-in user. "
+                    + "Responds with JSON unless the Accept header asks for CBOR or Smile.",
             parameters = {
                     @Parameter(
                             name = "profileId",
                             description = "ID of the profile stored in a cookie",
                             required = true,
                             schema = @Schema(type = "string")
+                    ),
+                    @Parameter(
+                            name = "page",
+                            description = "Page number for pagination (0-based index)",
+                            example = "0",
+                            schema = @Schema(type = "integer", defaultValue = "0")
+                    ),
+                    @Parameter(
+                            name = "size",
+                            description = "Number of profiles per page",
+                            example = "10",
+                            schema = @Schema(type = "integer", defaultValue = "10")
+                    ),
+                    @Parameter(
+                            name = "fields",
+                            description = "Optional comma-separated subset of id, name, openInfo and closedInfo to read and return",
+                            example = "name,closedInfo",
+                            schema = @Schema(type = "string")
                     )
             },
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Approved profiles retrieved successfully"),
+                    @ApiResponse(responseCode = "200", description = "Approved profiles retrieved successfully, total count in X-Total-Count header"),
+                    @ApiResponse(responseCode = "304", description = "Approved profiles unchanged since the ETag in If-None-Match"),
                     @ApiResponse(responseCode = "204", description = "No approved profiles found"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
-                    @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format, pagination parameters or unknown field"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
-    public ResponseEntity<List<Profile>> getAllApprovedProfiles(
-            @CookieValue(value = "profileId") String profileIdCookie
+    public ResponseEntity<List<?>> getAllApprovedProfiles(
+            @CookieValue(value = "profileId") String profileIdCookie,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request
     ) {
         try {
             if (profileIdCookie == null) {
@@ -333,16 +505,91 @@ public class ProfileController {
             }
 
             Long profileId = Long.parseLong(profileIdCookie);
-            List<Relation> profileRelations = relationService.getAllProfileRelations(profileId);
-            List<Profile> approvedProfiles = profileService.getAllApprovedProfiles(profileId, profileRelations);
+            FieldSet fieldSet = FieldSet.parse(fields, SparseFieldsRepository.MATCHED_PROFILE_FIELDS);
+            String eTag = ResponseFormats.eTag(contentVersions.relationsTag(profileId), request);
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
+            Page<?> approvedProfiles = fieldSet == null
+                    ? profileService.getAllApprovedProfiles(profileId, page, size)
+                    : profileService.getAllApprovedProfiles(profileId, page, size, fieldSet);
 
             if (approvedProfiles.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
             }
 
-            return ResponseEntity.ok(approvedProfiles);
-        } catch (NumberFormatException e) {
+            return ResponseEntity.ok()
+                    .eTag(eTag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .header("X-Total-Count", String.valueOf(approvedProfiles.getTotalElements()))
+                    .body(approvedProfiles.getContent());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/feed")
+    @Operation(
+            summary = "Get discovery feed",
+            description = "Retrieves the next profiles the logged-in user has no relation with yet. "
+                    + "Every call continues where the previous one stopped.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the profile stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    ),
+                    @Parameter(
+                            name = "size",
+                            description = "Number of profiles to return, at most the feed queue size",
+                            example = "10",
+                            schema = @Schema(type = "integer", defaultValue = "10")
+                    ),
+                    @Parameter(
+                            name = "fields",
+                            description = "Optional comma-separated subset of id, name and openInfo to read and return",
+                            example = "name,openInfo",
+                            schema = @Schema(type = "string")
+                    )
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Candidates retrieved successfully"),
+                    @ApiResponse(responseCode = "204", description = "No candidates left"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format, size or unknown field"),
+                    @ApiResponse(responseCode = "404", description = "Profile not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<List<?>> getFeed(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "fields", required = false) String fields
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            FieldSet fieldSet = FieldSet.parse(fields, SparseFieldsRepository.PROFILE_FIELDS);
+            List<?> candidates = fieldSet == null
+                    ? candidateFeedService.nextCandidates(profileId, size)
+                    : candidateFeedService.nextCandidates(profileId, size, fieldSet);
+
+            if (candidates.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+            }
+
+            return ResponseEntity.ok(candidates);
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -363,20 +610,27 @@ public class ProfileController {
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Profile retrieved successfully"),
+                    @ApiResponse(responseCode = "304", description = "Profile unchanged since the ETag in If-None-Match"),
                     @ApiResponse(responseCode = "404", description = "Profile not found"),
                     @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
-    public ResponseEntity<Profile> getProfile(@PathVariable Long profileId) {
+    public ResponseEntity<Profile> getProfile(@PathVariable Long profileId, WebRequest request) {
         try {
+            // The version is read before the profile, so the tag is never older than the body.
+            String eTag = contentVersions.profileTag(profileId);
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
             Profile profile = profileService.getProfile(profileId);
 
             if (profile == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
             }
 
-            return ResponseEntity.ok(profile);
+            return ResponseEntity.ok().eTag(eTag).body(profile);
         } catch (NumberFormatException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
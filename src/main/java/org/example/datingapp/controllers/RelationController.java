@@ -2,17 +2,31 @@ package org.example.datingapp.controllers;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.example.datingapp.models.Relation;
+import org.example.datingapp.events.RelationEventBroadcaster;
+import org.example.datingapp.fields.FieldSet;
+import org.example.datingapp.models.LikeBatchItem;
+import org.example.datingapp.models.enums.ExportFormat;
+import org.example.datingapp.models.enums.LikeResult;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.example.datingapp.services.ExportService;
 import org.example.datingapp.services.RelationService;
+import org.example.datingapp.versions.ContentVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
 
 @RestController
@@ -20,10 +34,21 @@ import java.util.NoSuchElementException;
 @RequestMapping("/api/relations")
 public class RelationController {
     private final RelationService relationService;
+    private final ExportService exportService;
+    private final RelationEventBroadcaster relationEventBroadcaster;
+    private final ContentVersions contentVersions;
 
     @Autowired
-    public RelationController(RelationService relationService) {
+    public RelationController(
+            RelationService relationService,
+            ExportService exportService,
+            RelationEventBroadcaster relationEventBroadcaster,
+            ContentVersions contentVersions
+    ) {
         this.relationService = relationService;
+        this.exportService = exportService;
+        this.relationEventBroadcaster = relationEventBroadcaster;
+        this.contentVersions = contentVersions;
     }
 
     @PostMapping("/like/{aimId}")
@@ -46,9 +71,10 @@ public class RelationController {
             },
             responses = {
                     @ApiResponse(responseCode = "201", description = "Relation created successfully"),
-                    @ApiResponse(responseCode = "200", description = "Relation already exists"),
+                    @ApiResponse(responseCode = "200", description = "Like matched a pending like, or the relation already exists"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
-                    @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format or self-like"),
+                    @ApiResponse(responseCode = "404", description = "Initiator or aim profile not found"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
@@ -62,13 +88,65 @@ public class RelationController {
 
         try {
             Long profileId = Long.parseLong(profileIdCookie);
-            boolean isRelationNew = relationService.saveRelation(profileId, aimId);
+            LikeResult result = relationService.saveRelation(profileId, aimId);
 
-            return isRelationNew
+            return result == LikeResult.CREATED
                     ? ResponseEntity.status(HttpStatus.CREATED).build()
                     : ResponseEntity.status(HttpStatus.OK).build();
         } catch (NumberFormatException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/like/batch")
+    @Operation(
+            summary = "Like many profiles",
+            description = "Creates relations from the logged-in user to every profile in the list, "
+                    + "as queued offline swipes, and reports the outcome of each of them.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the logged-in user stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    )
+            },
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "IDs of the profiles being liked, at most 1000",
+                    required = true,
+                    content = @Content(schema = @Schema(example = "[ 123, 124, 125 ]"))
+            ),
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Likes processed, with a result per profile"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format or too many likes"),
+                    @ApiResponse(responseCode = "404", description = "Logged-in profile not found"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<List<LikeBatchItem>> likeProfiles(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie,
+            @RequestBody List<Long> aimIds
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            List<LikeBatchItem> results = relationService.saveRelations(profileId, aimIds);
+
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -218,28 +296,43 @@ public class RelationController {
         }
     }
 
-    @GetMapping("/all")
+    @GetMapping(value = "/all", produces = {
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE,
+            ResponseFormats.SMILE_VALUE
+    })
     @Operation(
             summary = "Get all relations",
-            description = "Retrieves all relations for the logged-in user.",
+            description = "Retrieves all relations for the logged-in user. "
+                    + "Responds with JSON unless the Accept header asks for CBOR or Smile.",
             parameters = {
                     @Parameter(
                             name = "profileId",
                             description = "ID of the logged-in user stored in a cookie",
                             required = true,
                             schema = @Schema(type = "string")
+                    ),
+                    @Parameter(
+                            name = "fields",
+                            description = "Optional comma-separated subset of id, relationState, initiatorId, aimId, "
+                                    + "initiator and aim to read and return; the nested profiles are only joined when asked for",
+                            example = "id,initiatorId,aimId,relationState",
+                            schema = @Schema(type = "string")
                     )
             },
             responses = {
                     @ApiResponse(responseCode = "200", description = "Relations retrieved successfully"),
+                    @ApiResponse(responseCode = "304", description = "Relations unchanged since the ETag in If-None-Match"),
                     @ApiResponse(responseCode = "204", description = "No relations found"),
                     @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
-                    @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format or unknown field"),
                     @ApiResponse(responseCode = "500", description = "Internal server error")
             }
     )
-    public ResponseEntity<List<Relation>> getRelations(
-            @CookieValue(value = "profileId", required = false) String profileIdCookie
+    public ResponseEntity<List<?>> getRelations(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request
     ) {
         if (profileIdCookie == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
@@ -247,15 +340,182 @@ public class RelationController {
 
         try {
             Long profileId = Long.parseLong(profileIdCookie);
-            List<Relation> relations = relationService.getAllProfileRelations(profileId);
+            FieldSet fieldSet = FieldSet.parse(fields, SparseFieldsRepository.RELATION_FIELDS);
+            String eTag = ResponseFormats.eTag(contentVersions.relationsTag(profileId), request);
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+
+            List<?> relations = fieldSet == null
+                    ? relationService.getAllProfileRelations(profileId)
+                    : relationService.getAllProfileRelations(profileId, fieldSet);
             if (relations.isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
             }
-            return ResponseEntity.ok(relations);
+            return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(relations);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/liked-by")
+    @Operation(
+            summary = "Get pending admirers",
+            description = "Retrieves the IDs of the profiles whose likes of the logged-in user are still pending.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the logged-in user stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    )
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Profile IDs retrieved successfully"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<long[]> getLikedByIds(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            return ResponseEntity.ok(relationService.getLikedByIds(profileId));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/matches")
+    @Operation(
+            summary = "Get matches",
+            description = "Retrieves the IDs of the profiles the logged-in user matched with.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the logged-in user stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    )
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Profile IDs retrieved successfully"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<long[]> getMatchIds(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            return ResponseEntity.ok(relationService.getMatchIds(profileId));
         } catch (NumberFormatException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream relation events",
+            description = "Opens a Server-Sent Events stream of the likes, matches and rejections concerning the "
+                    + "logged-in user, sent as liked, matched and rejected events with the initiator and aim IDs. "
+                    + "The stream closes after app.events.emitter-timeout and clients are expected to reconnect.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the logged-in user stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    )
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Event stream opened successfully"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<SseEmitter> streamEvents(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            return ResponseEntity.ok(relationEventBroadcaster.subscribe(profileId));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            summary = "Export all relations",
+            description = "Streams every relation as newline-delimited JSON or CSV, for analytics snapshots.",
+            parameters = {
+                    @Parameter(
+                            name = "profileId",
+                            description = "ID of the logged-in user stored in a cookie",
+                            required = true,
+                            schema = @Schema(type = "string")
+                    ),
+                    @Parameter(
+                            name = "format",
+                            description = "Output format, ndjson or csv",
+                            example = "ndjson",
+                            schema = @Schema(type = "string", defaultValue = "ndjson")
+                    )
+            },
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Relations streamed successfully"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - no profileId cookie found"),
+                    @ApiResponse(responseCode = "400", description = "Invalid profileId format or unknown export format"),
+                    @ApiResponse(responseCode = "500", description = "Internal server error")
+            }
+    )
+    public ResponseEntity<StreamingResponseBody> exportRelations(
+            @CookieValue(value = "profileId", required = false) String profileIdCookie,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format
+    ) {
+        if (profileIdCookie == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            Long profileId = Long.parseLong(profileIdCookie);
+            ExportFormat exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                    .body(output -> exportService.exportRelations(profileId, exportFormat, output));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package org.example.datingapp.controllers;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Media types the list endpoints can answer with. JSON comes first and stays the default; CBOR
+ * and Smile encode the same documents in binary, which is smaller and cheaper to write and parse.
+ */
+final class ResponseFormats {
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final List<MediaType> LIST_TYPES = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR,
+            MediaType.valueOf(SMILE_VALUE)
+    );
+
+    private ResponseFormats() {
+    }
+
+    /**
+     * Qualifies a content version with the media type the request negotiates, so that every
+     * representation of the same content gets its own ETag. The tag is weak: the compressed and
+     * plain bodies differ byte for byte, and Tomcat only compresses responses with weak ETags.
+     * If-None-Match compares weakly, so conditional requests still get 304.
+     */
+    static String eTag(String version, WebRequest request) {
+        MediaType mediaType = negotiate(request.getHeader("Accept"));
+        String tag = mediaType.equals(MediaType.APPLICATION_JSON) ? version : version + "-" + mediaType.getSubtype();
+
+        return "W/\"" + tag + "\"";
+    }
+
+    /**
+     * Picks the media type the same way the message converters do: every accepted type is
+     * narrowed to the producible types it is compatible with, and the most specific one with
+     * the highest quality wins.
+     */
+    private static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        List<MediaType> compatibleTypes = new ArrayList<>();
+        try {
+            for (MediaType acceptedType : MediaType.parseMediaTypes(accept)) {
+                for (MediaType listType : LIST_TYPES) {
+                    if (acceptedType.isCompatibleWith(listType) && acceptedType.getQualityValue() > 0) {
+                        compatibleTypes.add(listType.copyQualityValue(acceptedType));
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Fall through, the request fails negotiation later on.
+        }
+
+        MimeTypeUtils.sortBySpecificity(compatibleTypes);
+
+        return compatibleTypes.isEmpty() ? MediaType.APPLICATION_JSON : compatibleTypes.get(0).removeQualityValue();
+    }
+}
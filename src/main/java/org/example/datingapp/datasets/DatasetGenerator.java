@@ -0,0 +1,254 @@
+package org.example.datingapp.datasets;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.enums.RelationState;
+import org.example.datingapp.repositories.ProfileBatchRepository;
+import org.example.datingapp.repositories.RelationBatchRepository;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds the database with synthetic profiles and a like graph shaped like the real one: the
+ * number of likes a profile sends follows a Pareto distribution and the profile it likes is
+ * drawn from a Zipf distribution over popularity, so a few profiles receive most of the likes.
+ * Profiles get the email user{i}@example.com and the password {@value #PASSWORD}. The same
+ * spec and seed always produce the same dataset.
+ */
+public class DatasetGenerator {
+    public static final String PASSWORD = "password";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_LIKES_PER_PROFILE = 1000;
+    private static final double LIKES_PARETO_SHAPE = 2.0;
+
+    private static final String[] FIRST_NAMES = {
+            "Alex", "Anna", "Ben", "Chloe", "Daniel", "Emma", "Felix", "Grace", "Hugo", "Isla", "Jack",
+            "Julia", "Leo", "Lily", "Marco", "Mia", "Noah", "Olivia", "Omar", "Priya", "Ravi", "Sara",
+            "Sofia", "Tom", "Yuki", "Zoe",
+    };
+    private static final String[] LAST_NAMES = {
+            "Andersen", "Brown", "Costa", "Dubois", "Evans", "Fischer", "Garcia", "Hansen", "Ivanova",
+            "Jensen", "Kim", "Lopez", "Martin", "Nowak", "Okafor", "Patel", "Rossi", "Silva", "Tanaka",
+            "Weber",
+    };
+    private static final String[] OCCUPATIONS = {
+            "teacher", "nurse", "software developer", "designer", "chef", "architect", "lawyer",
+            "photographer", "student", "musician", "engineer", "doctor", "writer", "barista",
+    };
+    private static final String[] CITIES = {
+            "Berlin", "Lisbon", "London", "Madrid", "Paris", "Prague", "Rome", "Stockholm", "Vienna",
+            "Warsaw", "Amsterdam", "Dublin",
+    };
+    private static final String[] INTERESTS = {
+            "hiking", "coffee", "travel", "live music", "books", "cooking", "dogs", "cats", "running",
+            "old movies", "modern art", "photography", "yoga", "cycling", "wine", "board games",
+            "dancing", "theatre", "climbing", "swimming", "tennis", "chess", "gardening", "history",
+            "science", "poetry", "jazz", "surfing", "baking", "skiing",
+    };
+    private static final String[] LOOKING_FOR = {
+            "Looking for someone to share adventures with.",
+            "Looking for something serious.",
+            "Here to meet new people.",
+            "Looking for a partner in crime.",
+            "Let's grab a coffee and see.",
+            "",
+    };
+
+    private final ProfileBatchRepository profileBatchRepository;
+    private final RelationBatchRepository relationBatchRepository;
+    private final Logger logger;
+
+    public DatasetGenerator(
+            ProfileBatchRepository profileBatchRepository,
+            RelationBatchRepository relationBatchRepository,
+            Logger prototypeLogger
+    ) {
+        this.profileBatchRepository = profileBatchRepository;
+        this.relationBatchRepository = relationBatchRepository;
+        this.logger = prototypeLogger;
+    }
+
+    public GeneratedDataset generate(DatasetSpec spec) {
+        Random random = new Random(spec.getSeed());
+        long[] profileIds = insertProfiles(spec.getProfileCount(), random);
+        long relationCount = profileIds.length < 2 ? 0 : insertRelations(spec, profileIds, random);
+
+        logger.info("Generated dataset with {} profiles and {} relations", profileIds.length, relationCount);
+
+        return new GeneratedDataset(profileIds, relationCount);
+    }
+
+    public static String randomOpenInfo(Random random) {
+        StringBuilder openInfo = new StringBuilder()
+                .append("I'm a ").append(pick(OCCUPATIONS, random))
+                .append(" from ").append(pick(CITIES, random))
+                .append(". I love ").append(pick(INTERESTS, random))
+                .append(", ").append(pick(INTERESTS, random))
+                .append(" and ").append(pick(INTERESTS, random)).append('.');
+
+        if (random.nextBoolean()) {
+            openInfo.append(" Weekends are for ").append(pick(INTERESTS, random)).append('.');
+        }
+
+        String lookingFor = pick(LOOKING_FOR, random);
+        if (!lookingFor.isEmpty()) {
+            openInfo.append(' ').append(lookingFor);
+        }
+
+        return openInfo.toString();
+    }
+
+    private long[] insertProfiles(int profileCount, Random random) {
+        long[] profileIds = new long[profileCount];
+        List<Profile> batch = new ArrayList<>();
+
+        for (int i = 0; i < profileCount; i++) {
+            Profile profile = new Profile();
+            profile.setName(pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random));
+            profile.setEmail("user" + i + "@example.com");
+            profile.setPassword(PASSWORD);
+            profile.setOpenInfo(randomOpenInfo(random));
+            profile.setClosedInfo("Phone: +1 555 " + (1000000 + random.nextInt(9000000)));
+            batch.add(profile);
+
+            if (batch.size() == BATCH_SIZE || i == profileCount - 1) {
+                profileBatchRepository.insertAll(batch);
+
+                int firstIndex = i + 1 - batch.size();
+                for (int j = 0; j < batch.size(); j++) {
+                    profileIds[firstIndex + j] = batch.get(j).getId();
+                }
+
+                batch = new ArrayList<>();
+                logger.info("Generated {} of {} profiles", i + 1, profileCount);
+            }
+        }
+
+        return profileIds;
+    }
+
+    /**
+     * Draws the likes of every profile, keeps one relation per unordered pair and inserts them
+     * with states drawn from the configured weights. Pairs are packed into one sorted long array
+     * as (lowIndex * n + highIndex) * 2 + direction, which takes eight bytes per like.
+     */
+    private long insertRelations(DatasetSpec spec, long[] profileIds, Random random) {
+        int n = profileIds.length;
+        int[] profileByPopularity = shuffledIndexes(n, random);
+        double[] cumulativePopularity = zipfCumulativeWeights(n, spec.getPopularityExponent());
+        int maxLikes = Math.min(n - 1, MAX_LIKES_PER_PROFILE);
+        double minLikes = spec.getLikesPerProfile() * (LIKES_PARETO_SHAPE - 1) / LIKES_PARETO_SHAPE;
+
+        long expectedLikes = Math.max(16L, (long) n * spec.getLikesPerProfile());
+        long[] pairs = new long[(int) Math.min(Integer.MAX_VALUE - 8, expectedLikes)];
+        int pairCount = 0;
+
+        for (int initiator = 0; initiator < n; initiator++) {
+            double pareto = minLikes / Math.pow(1 - random.nextDouble(), 1 / LIKES_PARETO_SHAPE);
+            int likes = (int) Math.min(maxLikes, Math.round(pareto));
+
+            for (int j = 0; j < likes; j++) {
+                int aim = profileByPopularity[sampleIndex(cumulativePopularity, random)];
+                if (aim == initiator) {
+                    continue;
+                }
+
+                if (pairCount == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                }
+
+                long low = Math.min(initiator, aim);
+                long high = Math.max(initiator, aim);
+                pairs[pairCount++] = (low * n + high) * 2 + (initiator < aim ? 0 : 1);
+            }
+        }
+
+        Arrays.sort(pairs, 0, pairCount);
+
+        int totalWeight = spec.getPendingWeight() + spec.getApprovedWeight() + spec.getRejectedWeight();
+        List<RelationEdge> batch = new ArrayList<>();
+        long relationCount = 0;
+        long previousPair = -1;
+
+        for (int i = 0; i < pairCount; i++) {
+            long pair = pairs[i] / 2;
+            if (pair == previousPair) {
+                continue;
+            }
+            previousPair = pair;
+
+            int low = (int) (pair / n);
+            int high = (int) (pair % n);
+            boolean lowInitiates = pairs[i] % 2 == 0;
+            int draw = random.nextInt(totalWeight);
+            RelationState state = draw < spec.getPendingWeight()
+                    ? RelationState.PENDING
+                    : draw < spec.getPendingWeight() + spec.getApprovedWeight()
+                            ? RelationState.APPROVED
+                            : RelationState.REJECTED;
+
+            batch.add(new RelationEdge(
+                    null,
+                    profileIds[lowInitiates ? low : high],
+                    profileIds[lowInitiates ? high : low],
+                    state
+            ));
+            relationCount++;
+
+            if (batch.size() == BATCH_SIZE) {
+                relationBatchRepository.insertAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            relationBatchRepository.insertAll(batch);
+        }
+
+        return relationCount;
+    }
+
+    private static int[] shuffledIndexes(int n, Random random) {
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = i;
+        }
+
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+
+        return indexes;
+    }
+
+    private static double[] zipfCumulativeWeights(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+
+        return cumulative;
+    }
+
+    private static int sampleIndex(double[] cumulativeWeights, Random random) {
+        double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int index = Arrays.binarySearch(cumulativeWeights, target);
+
+        return index >= 0 ? index : Math.min(-index - 1, cumulativeWeights.length - 1);
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
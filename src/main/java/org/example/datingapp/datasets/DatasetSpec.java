@@ -0,0 +1,71 @@
+package org.example.datingapp.datasets;
+
+/**
+ * The shape of a synthetic dataset: how many profiles, how many likes each of them sends on
+ * average, how strongly likes concentrate on popular profiles and in which proportions the
+ * relations end up PENDING, APPROVED or REJECTED.
+ */
+public class DatasetSpec {
+    private final int profileCount;
+    private final int likesPerProfile;
+    private final double popularityExponent;
+    private final int pendingWeight;
+    private final int approvedWeight;
+    private final int rejectedWeight;
+    private final long seed;
+
+    public DatasetSpec(
+            int profileCount,
+            int likesPerProfile,
+            double popularityExponent,
+            int pendingWeight,
+            int approvedWeight,
+            int rejectedWeight,
+            long seed
+    ) {
+        if (profileCount < 0 || likesPerProfile < 0) {
+            throw new IllegalArgumentException("Profile and like counts must not be negative.");
+        }
+
+        if (pendingWeight < 0 || approvedWeight < 0 || rejectedWeight < 0
+                || pendingWeight + approvedWeight + rejectedWeight == 0) {
+            throw new IllegalArgumentException("Relation state weights must be non-negative and not all zero.");
+        }
+
+        this.profileCount = profileCount;
+        this.likesPerProfile = likesPerProfile;
+        this.popularityExponent = popularityExponent;
+        this.pendingWeight = pendingWeight;
+        this.approvedWeight = approvedWeight;
+        this.rejectedWeight = rejectedWeight;
+        this.seed = seed;
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    public int getLikesPerProfile() {
+        return likesPerProfile;
+    }
+
+    public double getPopularityExponent() {
+        return popularityExponent;
+    }
+
+    public int getPendingWeight() {
+        return pendingWeight;
+    }
+
+    public int getApprovedWeight() {
+        return approvedWeight;
+    }
+
+    public int getRejectedWeight() {
+        return rejectedWeight;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
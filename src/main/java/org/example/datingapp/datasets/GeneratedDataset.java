@@ -0,0 +1,23 @@
+package org.example.datingapp.datasets;
+
+/**
+ * The ids of the generated profiles, in generation order, and the number of relations
+ * between them.
+ */
+public class GeneratedDataset {
+    private final long[] profileIds;
+    private final long relationCount;
+
+    public GeneratedDataset(long[] profileIds, long relationCount) {
+        this.profileIds = profileIds;
+        this.relationCount = relationCount;
+    }
+
+    public long[] getProfileIds() {
+        return profileIds;
+    }
+
+    public long getRelationCount() {
+        return relationCount;
+    }
+}
@@ -0,0 +1,285 @@
+package org.example.datingapp.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.datingapp.models.RelationEvent;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes relation events to the Server-Sent Events streams of the profiles they concern.
+ * Streams are asynchronous requests, so an idle connection holds no thread. Every stream has a
+ * bounded queue drained on the event send executor, so publishing an event or a heartbeat never
+ * waits for a client; a client that falls a whole queue behind, or whose send outlasts
+ * app.events.send-timeout, is disconnected and resyncs from /api/relations/all when it reconnects.
+ */
+@Component
+public class RelationEventBroadcaster implements DisposableBean {
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribersByProfileId = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Set<Subscriber> sendingSubscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor eventSendExecutor;
+    private final int sendThreads;
+    private final ScheduledExecutorService heartbeatScheduler;
+    private final Duration emitterTimeout;
+    private final long sendTimeoutNanos;
+    private final int sendQueueCapacity;
+    private final Counter overflows;
+    private final Counter stalls;
+    private final Object sendPoolLock = new Object();
+    private int stalledSends;
+
+    public RelationEventBroadcaster(
+            @Qualifier("eventSendExecutor") ThreadPoolExecutor eventSendExecutor,
+            @Value("${app.events.emitter-timeout}") Duration emitterTimeout,
+            @Value("${app.events.heartbeat-interval}") Duration heartbeatInterval,
+            @Value("${app.events.send-timeout}") Duration sendTimeout,
+            @Value("${app.events.send-queue-capacity}") int sendQueueCapacity,
+            MeterRegistry meterRegistry
+    ) {
+        this.eventSendExecutor = eventSendExecutor;
+        this.sendThreads = eventSendExecutor.getCorePoolSize();
+        this.emitterTimeout = emitterTimeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.sendQueueCapacity = sendQueueCapacity;
+        Gauge.builder("app.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open relation event streams")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("app.events.overflows")
+                .description("Relation event streams disconnected because their send queue was full")
+                .register(meterRegistry);
+        this.stalls = Counter.builder("app.events.stalls")
+                .description("Relation event streams disconnected because a send outlasted the send timeout")
+                .register(meterRegistry);
+
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("event-heartbeat").daemon().factory());
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        this.heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long stallCheckMillis = Math.max(1, sendTimeout.toMillis() / 2);
+        this.heartbeatScheduler.scheduleAtFixedRate(this::dropStalledSends, stallCheckMillis, stallCheckMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream of the relation events of the profile. Clients reconnect once it times out.
+     */
+    public SseEmitter subscribe(Long profileId) {
+        return subscribe(profileId, new SseEmitter(emitterTimeout.toMillis()));
+    }
+
+    SseEmitter subscribe(Long profileId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(profileId, emitter, sendQueueCapacity);
+        subscribersByProfileId.computeIfAbsent(profileId, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> emitter.complete());
+
+        return emitter;
+    }
+
+    @EventListener
+    public void onRelationEvent(RelationEvent event) {
+        publish(event.getInitiatorId(), event);
+        publish(event.getAimId(), event);
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @Override
+    public void destroy() {
+        heartbeatScheduler.shutdownNow();
+    }
+
+    private void sendHeartbeats() {
+        subscribersByProfileId.values().forEach(subscribers -> subscribers.forEach(subscriber ->
+                enqueue(subscriber, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private void publish(Long profileId, RelationEvent event) {
+        Set<Subscriber> subscribers = subscribersByProfileId.get(profileId);
+        if (subscribers == null) {
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            // Builders keep state across sends, so every stream gets its own.
+            enqueue(subscriber, SseEmitter.event()
+                    .name(event.getType().name().toLowerCase(Locale.ROOT))
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed) {
+            return;
+        }
+
+        if (!subscriber.events.offer(event)) {
+            // Completing the emitter here would wait for its monitor, which the stalled send
+            // holds, so the drain completes it once that send returns.
+            overflows.increment();
+            subscriber.closed = true;
+            subscriber.events.clear();
+            unsubscribe(subscriber);
+        }
+
+        scheduleDrain(subscriber);
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            eventSendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; clients will resync from /api/relations/all when they reconnect.
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed && (event = subscriber.events.poll()) != null) {
+                try {
+                    send(subscriber, event);
+                } catch (IOException | IllegalStateException e) {
+                    subscriber.closed = true;
+                    subscriber.events.clear();
+                    subscriber.emitter.completeWithError(e);
+                    return;
+                }
+            }
+
+            if (subscriber.closed) {
+                subscriber.emitter.complete();
+                return;
+            }
+
+            subscriber.draining.set(false);
+            // An event queued after the last poll but before the flag was cleared found a drain
+            // still running and did not schedule one.
+            if (subscriber.events.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStartedAt = System.nanoTime();
+        subscriber.sendState.set(Subscriber.SENDING);
+        sendingSubscribers.add(subscriber);
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            sendingSubscribers.remove(subscriber);
+            if (!subscriber.sendState.compareAndSet(Subscriber.SENDING, Subscriber.IDLE)) {
+                // Given up on as stalled, so the thread lent to the pool meanwhile is returned.
+                subscriber.sendState.set(Subscriber.IDLE);
+                resizeSendPool(-1);
+            }
+        }
+    }
+
+    /**
+     * Disconnects the streams whose send has blocked for longer than the send timeout. The
+     * write itself cannot be interrupted, so the pool gets another thread until it returns and
+     * the other streams keep their share of the pool.
+     */
+    private void dropStalledSends() {
+        long now = System.nanoTime();
+
+        for (Subscriber subscriber : sendingSubscribers) {
+            if (now - subscriber.sendStartedAt < sendTimeoutNanos) {
+                continue;
+            }
+
+            synchronized (sendPoolLock) {
+                if (!subscriber.sendState.compareAndSet(Subscriber.SENDING, Subscriber.STALLED)) {
+                    continue;
+                }
+                // Closed before the drain can return the thread, so it sends nothing more.
+                subscriber.closed = true;
+                resizeSendPool(1);
+            }
+            stalls.increment();
+            // As on overflow, the drain completes the emitter once the send returns.
+            subscriber.events.clear();
+            unsubscribe(subscriber);
+        }
+    }
+
+    private void resizeSendPool(int delta) {
+        synchronized (sendPoolLock) {
+            stalledSends += delta;
+            int threads = sendThreads + stalledSends;
+
+            // The maximum may never fall below the core size, so the order depends on the direction.
+            if (delta > 0) {
+                eventSendExecutor.setMaximumPoolSize(threads);
+                eventSendExecutor.setCorePoolSize(threads);
+            } else {
+                eventSendExecutor.setCorePoolSize(threads);
+                eventSendExecutor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribersByProfileId.computeIfPresent(subscriber.profileId, (key, subscribers) -> {
+            if (subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static class Subscriber {
+        private static final int IDLE = 0;
+        private static final int SENDING = 1;
+        private static final int STALLED = 2;
+
+        private final Long profileId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> events;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicInteger sendState = new AtomicInteger(IDLE);
+        private volatile long sendStartedAt;
+        private volatile boolean closed;
+
+        Subscriber(Long profileId, SseEmitter emitter, int capacity) {
+            this.profileId = profileId;
+            this.emitter = emitter;
+            this.events = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
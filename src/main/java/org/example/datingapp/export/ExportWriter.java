@@ -0,0 +1,27 @@
+package org.example.datingapp.export;
+
+import org.example.datingapp.models.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes rows of a fixed set of columns to an output stream as they come, without keeping them.
+ */
+public interface ExportWriter extends AutoCloseable {
+    void writeRow(List<Object> values) throws IOException;
+
+    /**
+     * Flushes buffered rows to the underlying stream without closing it.
+     */
+    @Override
+    void close() throws IOException;
+
+    static ExportWriter create(ExportFormat format, List<String> columns, OutputStream output) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonExportWriter(columns, output);
+            case CSV -> new CsvExportWriter(columns, output);
+        };
+    }
+}
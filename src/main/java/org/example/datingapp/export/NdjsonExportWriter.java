@@ -0,0 +1,52 @@
+package org.example.datingapp.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+class NdjsonExportWriter implements ExportWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<String> columns;
+    private final JsonGenerator generator;
+    private long rows;
+
+    NdjsonExportWriter(List<String> columns, OutputStream output) throws IOException {
+        this.columns = columns;
+        this.generator = JSON_FACTORY.createGenerator(output)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    public void writeRow(List<Object> values) throws IOException {
+        generator.writeStartObject();
+
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = values.get(i);
+
+            if (value == null) {
+                generator.writeNullField(columns.get(i));
+            } else if (value instanceof Number number) {
+                generator.writeNumberField(columns.get(i), number.longValue());
+            } else {
+                generator.writeStringField(columns.get(i), value.toString());
+            }
+        }
+
+        generator.writeEndObject();
+        rows++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (rows > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.datingapp.fields;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The fields a client asked for with the fields= query parameter, in the order it listed them.
+ */
+public class FieldSet {
+    private final Set<String> names;
+
+    private FieldSet(Set<String> names) {
+        this.names = Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Parses a comma-separated list of field names, rejecting empty lists and names outside the
+     * allowed ones. Returns null when no list was given, meaning the default view.
+     */
+    public static FieldSet parse(String fields, Collection<String> allowedNames) {
+        if (fields == null) {
+            return null;
+        }
+
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+
+            if (!allowedNames.contains(trimmed)) {
+                throw new IllegalArgumentException("Unknown field: " + trimmed);
+            }
+            names.add(trimmed);
+        }
+
+        return new FieldSet(names);
+    }
+
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    public Set<String> names() {
+        return names;
+    }
+}
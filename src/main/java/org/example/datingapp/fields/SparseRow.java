@@ -0,0 +1,28 @@
+package org.example.datingapp.fields;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Map;
+
+/**
+ * One profile or relation narrowed to the requested fields. The id is always read, for ordering
+ * and cursors, but only serialized when it was requested.
+ */
+public class SparseRow {
+    private final Long id;
+    private final Map<String, Object> values;
+
+    public SparseRow(Long id, Map<String, Object> values) {
+        this.id = id;
+        this.values = values;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @JsonValue
+    public Map<String, Object> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.datingapp.graph;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+class LongSet {
+    private static final int MIN_CAPACITY = 4;
+
+    // Open addressing like LongObjectHashMap; ids are positive and 0 marks a free slot.
+    private long[] ids = new long[MIN_CAPACITY];
+    private int size;
+
+    boolean add(long id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Id must be positive.");
+        }
+
+        int mask = ids.length - 1;
+        int slot = slotOf(id, mask);
+        while (ids[slot] != 0) {
+            if (ids[slot] == id) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        ids[slot] = id;
+        size++;
+
+        if (size * 4 > ids.length * 3) {
+            resize(ids.length * 2);
+        }
+
+        return true;
+    }
+
+    // Shifts back the ids that probed past the removed one, so lookups never need tombstones.
+    boolean remove(long id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return false;
+        }
+
+        int mask = ids.length - 1;
+        int next = (slot + 1) & mask;
+        while (ids[next] != 0) {
+            int home = slotOf(ids[next], mask);
+
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                ids[slot] = ids[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        ids[slot] = 0;
+        size--;
+
+        return true;
+    }
+
+    boolean contains(long id) {
+        return find(id) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void forEach(LongConsumer action) {
+        for (long id : ids) {
+            if (id != 0) {
+                action.accept(id);
+            }
+        }
+    }
+
+    long[] toArray() {
+        long[] array = new long[size];
+        int index = 0;
+        for (long id : ids) {
+            if (id != 0) {
+                array[index++] = id;
+            }
+        }
+        Arrays.sort(array);
+
+        return array;
+    }
+
+    void trimToSize() {
+        int capacity = MIN_CAPACITY;
+        while (size * 4 > capacity * 3) {
+            capacity *= 2;
+        }
+
+        if (capacity < ids.length) {
+            resize(capacity);
+        }
+    }
+
+    long capacity() {
+        return ids.length;
+    }
+
+    private int find(long id) {
+        int mask = ids.length - 1;
+        int slot = slotOf(id, mask);
+
+        while (ids[slot] != 0) {
+            if (ids[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private static int slotOf(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        int mask = capacity - 1;
+        ids = new long[capacity];
+
+        for (long id : oldIds) {
+            if (id != 0) {
+                int slot = slotOf(id, mask);
+                while (ids[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = id;
+            }
+        }
+    }
+}
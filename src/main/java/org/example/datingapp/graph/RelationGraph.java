@@ -0,0 +1,348 @@
+package org.example.datingapp.graph;
+
+import org.example.datingapp.models.enums.RelationState;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+@Component
+public class RelationGraph {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongObjectHashMap<Adjacency> adjacencies = new LongObjectHashMap<>();
+    private long relationCount;
+    private List<Consumer<RelationGraph>> writesDuringRebuild;
+
+    public void put(long initiatorId, long aimId, RelationState state) {
+        lock.writeLock().lock();
+        try {
+            putLocked(initiatorId, aimId, state);
+            recordForRebuild(graph -> graph.put(initiatorId, aimId, state));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addLike(long initiatorId, long aimId) {
+        lock.writeLock().lock();
+        try {
+            // A like applied after the match it led to must not undo the match.
+            if (!hasRelationLocked(initiatorId, aimId)) {
+                putLocked(initiatorId, aimId, RelationState.PENDING);
+            }
+            recordForRebuild(graph -> graph.addLike(initiatorId, aimId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long initiatorId, long aimId) {
+        lock.writeLock().lock();
+        try {
+            removePair(initiatorId, aimId);
+            recordForRebuild(graph -> graph.remove(initiatorId, aimId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Consumer<RelationGraph> loader) {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringRebuild != null) {
+                throw new IllegalStateException("Relation graph is already being rebuilt.");
+            }
+            writesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        RelationGraph rebuilt = new RelationGraph();
+        try {
+            loader.accept(rebuilt);
+            rebuilt.trimToSize();
+        } catch (RuntimeException | Error e) {
+            lock.writeLock().lock();
+            try {
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Writes made while the loader ran are replayed, so none is lost to a row the loader
+            // read before it. This takes the lock of the new graph while holding this one;
+            // nothing else can reach the new graph, so the order is never reversed.
+            writesDuringRebuild.forEach(write -> write.accept(rebuilt));
+            writesDuringRebuild = null;
+            adjacencies = rebuilt.adjacencies;
+            relationCount = rebuilt.relationCount;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void trimToSize() {
+        lock.writeLock().lock();
+        try {
+            adjacencies.forEachValue(Adjacency::trimToSize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean likes(long profileId, long otherId) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = adjacencies.get(profileId);
+
+            return adjacency != null && (contains(adjacency.likes, otherId)
+                    || contains(adjacency.matches, otherId)
+                    || contains(adjacency.rejectedBy, otherId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean hasRelation(long profileId, long otherId) {
+        lock.readLock().lock();
+        try {
+            return hasRelationLocked(profileId, otherId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] likedBy(long profileId) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = adjacencies.get(profileId);
+
+            return adjacency == null ? new long[0] : toArray(adjacency.likedBy);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] pendingLikes(long profileId) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = adjacencies.get(profileId);
+
+            return adjacency == null ? new long[0] : toArray(adjacency.likes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long[] matches(long profileId) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = adjacencies.get(profileId);
+
+            return adjacency == null ? new long[0] : toArray(adjacency.matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void forEachRelated(long profileId, LongConsumer action) {
+        lock.readLock().lock();
+        try {
+            Adjacency adjacency = adjacencies.get(profileId);
+
+            if (adjacency != null) {
+                adjacency.forEach(action);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long relationCount() {
+        lock.readLock().lock();
+        try {
+            return relationCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int profileCount() {
+        lock.readLock().lock();
+        try {
+            return adjacencies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long[] bytes = {16L + 12L * adjacencies.capacity()};
+            adjacencies.forEachValue(adjacency -> bytes[0] += adjacency.estimatedBytes());
+
+            return bytes[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putLocked(long initiatorId, long aimId, RelationState state) {
+        removePair(initiatorId, aimId);
+
+        Adjacency initiator = adjacencyOf(initiatorId);
+        Adjacency aim = adjacencyOf(aimId);
+        switch (state) {
+            case PENDING -> {
+                initiator.likes = add(initiator.likes, aimId);
+                aim.likedBy = add(aim.likedBy, initiatorId);
+            }
+            case APPROVED -> {
+                initiator.matches = add(initiator.matches, aimId);
+                aim.matches = add(aim.matches, initiatorId);
+            }
+            case REJECTED -> {
+                initiator.rejectedBy = add(initiator.rejectedBy, aimId);
+                aim.rejected = add(aim.rejected, initiatorId);
+            }
+        }
+        relationCount++;
+    }
+
+    private void recordForRebuild(Consumer<RelationGraph> write) {
+        if (writesDuringRebuild != null) {
+            writesDuringRebuild.add(write);
+        }
+    }
+
+    private boolean hasRelationLocked(long profileId, long otherId) {
+        Adjacency adjacency = adjacencies.get(profileId);
+
+        return adjacency != null && (contains(adjacency.likes, otherId)
+                || contains(adjacency.likedBy, otherId)
+                || contains(adjacency.matches, otherId)
+                || contains(adjacency.rejected, otherId)
+                || contains(adjacency.rejectedBy, otherId));
+    }
+
+    private void removePair(long firstId, long secondId) {
+        Adjacency first = adjacencies.get(firstId);
+        Adjacency second = adjacencies.get(secondId);
+
+        if (first == null || second == null || !first.removeAll(secondId)) {
+            return;
+        }
+
+        second.removeAll(firstId);
+        relationCount--;
+
+        if (first.isEmpty()) {
+            adjacencies.remove(firstId);
+        }
+        if (second.isEmpty()) {
+            adjacencies.remove(secondId);
+        }
+    }
+
+    private Adjacency adjacencyOf(long profileId) {
+        Adjacency adjacency = adjacencies.get(profileId);
+
+        if (adjacency == null) {
+            adjacency = new Adjacency();
+            adjacencies.put(profileId, adjacency);
+        }
+
+        return adjacency;
+    }
+
+    private static LongSet add(LongSet set, long id) {
+        LongSet target = set == null ? new LongSet() : set;
+        target.add(id);
+
+        return target;
+    }
+
+    private static boolean contains(LongSet set, long id) {
+        return set != null && set.contains(id);
+    }
+
+    private static long[] toArray(LongSet set) {
+        return set == null ? new long[0] : set.toArray();
+    }
+
+    private static class Adjacency {
+        private LongSet likes;
+        private LongSet likedBy;
+        private LongSet matches;
+        private LongSet rejected;
+        private LongSet rejectedBy;
+
+        boolean removeAll(long id) {
+            boolean removed = likes != null && likes.remove(id);
+            removed |= likedBy != null && likedBy.remove(id);
+            removed |= matches != null && matches.remove(id);
+            removed |= rejected != null && rejected.remove(id);
+            removed |= rejectedBy != null && rejectedBy.remove(id);
+
+            return removed;
+        }
+
+        void forEach(LongConsumer action) {
+            forEach(likes, action);
+            forEach(likedBy, action);
+            forEach(matches, action);
+            forEach(rejected, action);
+            forEach(rejectedBy, action);
+        }
+
+        boolean isEmpty() {
+            return isEmpty(likes) && isEmpty(likedBy) && isEmpty(matches) && isEmpty(rejected) && isEmpty(rejectedBy);
+        }
+
+        void trimToSize() {
+            likes = trim(likes);
+            likedBy = trim(likedBy);
+            matches = trim(matches);
+            rejected = trim(rejected);
+            rejectedBy = trim(rejectedBy);
+        }
+
+        long estimatedBytes() {
+            return 32 + estimatedBytes(likes) + estimatedBytes(likedBy) + estimatedBytes(matches)
+                    + estimatedBytes(rejected) + estimatedBytes(rejectedBy);
+        }
+
+        private static void forEach(LongSet set, LongConsumer action) {
+            if (set != null) {
+                set.forEach(action);
+            }
+        }
+
+        private static boolean isEmpty(LongSet set) {
+            return set == null || set.isEmpty();
+        }
+
+        private static LongSet trim(LongSet set) {
+            if (set == null || set.isEmpty()) {
+                return null;
+            }
+
+            set.trimToSize();
+
+            return set;
+        }
+
+        private static long estimatedBytes(LongSet set) {
+            return set == null ? 0 : 24 + 16 + 8 * set.capacity();
+        }
+    }
+}
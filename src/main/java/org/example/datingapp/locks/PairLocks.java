@@ -0,0 +1,111 @@
+package org.example.datingapp.locks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Mutual exclusion per unordered pair of profiles. Every pair gets its own lock, created on
+ * first use and dropped once no thread holds or waits for it, so unrelated pairs never share a
+ * lock and memory stays proportional to the pairs in use. Several pairs are always locked in
+ * ascending pair order, so callers locking overlapping sets cannot deadlock.
+ */
+public class PairLocks {
+    private final ConcurrentMap<PairKey, PairLock> locks = new ConcurrentHashMap<>();
+
+    public void withLock(long firstId, long secondId, Runnable action) {
+        withLock(firstId, secondId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T withLock(long firstId, long secondId, Supplier<T> action) {
+        PairKey key = PairKey.of(firstId, secondId);
+        PairLock lock = acquire(key);
+
+        try {
+            return action.get();
+        } finally {
+            release(key, lock);
+        }
+    }
+
+    /**
+     * Runs the action holding the locks of the profile paired with each of the other profiles.
+     */
+    public <T> T withLocks(long profileId, Collection<Long> otherIds, Supplier<T> action) {
+        TreeSet<PairKey> keys = new TreeSet<>();
+        for (Long otherId : otherIds) {
+            if (otherId != null && otherId != profileId) {
+                keys.add(PairKey.of(profileId, otherId));
+            }
+        }
+
+        List<PairKey> acquiredKeys = new ArrayList<>();
+        List<PairLock> acquiredLocks = new ArrayList<>();
+        try {
+            for (PairKey key : keys) {
+                acquiredLocks.add(acquire(key));
+                acquiredKeys.add(key);
+            }
+
+            return action.get();
+        } finally {
+            for (int i = acquiredLocks.size() - 1; i >= 0; i--) {
+                release(acquiredKeys.get(i), acquiredLocks.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pairs currently locked or waited for.
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    private PairLock acquire(PairKey key) {
+        PairLock lock = locks.compute(key, (k, existing) -> {
+            PairLock pairLock = existing == null ? new PairLock() : existing;
+            pairLock.users++;
+
+            return pairLock;
+        });
+        lock.lock.lock();
+
+        return lock;
+    }
+
+    private void release(PairKey key, PairLock lock) {
+        lock.lock.unlock();
+        locks.computeIfPresent(key, (k, existing) -> --existing.users == 0 ? null : existing);
+    }
+
+    private record PairKey(long lowId, long highId) implements Comparable<PairKey> {
+        static PairKey of(long firstId, long secondId) {
+            return new PairKey(Math.min(firstId, secondId), Math.max(firstId, secondId));
+        }
+
+        @Override
+        public int compareTo(PairKey other) {
+            int byLow = Long.compare(lowId, other.lowId);
+
+            return byLow != 0 ? byLow : Long.compare(highId, other.highId);
+        }
+    }
+
+    /**
+     * The lock of one pair and the number of threads holding or waiting for it, only changed
+     * inside the map's compute functions.
+     */
+    private static class PairLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int users;
+    }
+}
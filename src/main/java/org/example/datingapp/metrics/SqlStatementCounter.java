@@ -0,0 +1,34 @@
+package org.example.datingapp.metrics;
+
+/**
+ * Counts the SQL statements the current thread sends to the database between start and stop.
+ * A JDBC batch counts as one statement, since it is sent in one round-trip.
+ */
+public final class SqlStatementCounter {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Returns the number of statements counted since start and stops counting.
+     */
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+
+        return count == null ? 0 : count[0];
+    }
+
+    static void increment() {
+        int[] count = COUNT.get();
+
+        if (count != null) {
+            count[0]++;
+        }
+    }
+}
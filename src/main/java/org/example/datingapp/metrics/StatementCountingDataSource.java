@@ -0,0 +1,75 @@
+package org.example.datingapp.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Wraps the connections of the target data source so that every statement they execute is
+ * counted by {@link SqlStatementCounter}, whether it comes from Hibernate or a JdbcTemplate.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTIONS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch"
+    );
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, super.getConnection(), this::wrapStatements);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, super.getConnection(username, password), this::wrapStatements);
+    }
+
+    private Object wrapStatements(Object connection, Method method, Object[] args) throws Throwable {
+        Object result = invoke(connection, method, args);
+
+        if (STATEMENT_FACTORIES.contains(method.getName()) && result instanceof Statement) {
+            return wrap(method.getReturnType(), result, this::countExecutions);
+        }
+
+        return result;
+    }
+
+    private Object countExecutions(Object statement, Method method, Object[] args) throws Throwable {
+        if (EXECUTIONS.contains(method.getName())) {
+            SqlStatementCounter.increment();
+        }
+
+        return invoke(statement, method, args);
+    }
+
+    private static <T> T wrap(Class<T> type, Object target, TargetInvocationHandler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, invocationHandler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetInvocationHandler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.datingapp.models;
+
+import org.example.datingapp.models.enums.LikeResult;
+
+public class LikeBatchItem {
+    private final Long aimId;
+    private final LikeResult result;
+
+    public LikeBatchItem(Long aimId, LikeResult result) {
+        this.aimId = aimId;
+        this.result = result;
+    }
+
+    public Long getAimId() {
+        return aimId;
+    }
+
+    public LikeResult getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.datingapp.models;
+
+public class ProfileImportError {
+    private final long line;
+    private final String message;
+
+    public ProfileImportError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
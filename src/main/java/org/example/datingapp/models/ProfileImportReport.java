@@ -0,0 +1,53 @@
+package org.example.datingapp.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk profile import. Only the first errors are kept so that the report stays
+ * small however many lines fail.
+ */
+public class ProfileImportReport {
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private long processedLines;
+    private long importedProfiles;
+    private long failedLines;
+    private final List<ProfileImportError> errors = new ArrayList<>();
+
+    public void lineProcessed() {
+        processedLines++;
+    }
+
+    public void profilesImported(int count) {
+        importedProfiles += count;
+    }
+
+    public void lineFailed(long line, String message) {
+        failedLines++;
+
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ProfileImportError(line, message));
+        }
+    }
+
+    public long getProcessedLines() {
+        return processedLines;
+    }
+
+    public long getImportedProfiles() {
+        return importedProfiles;
+    }
+
+    public long getFailedLines() {
+        return failedLines;
+    }
+
+    public List<ProfileImportError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return failedLines > errors.size();
+    }
+}
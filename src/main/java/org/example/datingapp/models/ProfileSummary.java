@@ -0,0 +1,43 @@
+package org.example.datingapp.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The public part of a profile, read without its email, password or closed information.
+ * Closed information is only filled in where an APPROVED relation reveals it, and left out of
+ * the JSON otherwise.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProfileSummary {
+    private final Long id;
+    private final String name;
+    private final String openInfo;
+    private final String closedInfo;
+
+    public ProfileSummary(Long id, String name, String openInfo) {
+        this(id, name, openInfo, null);
+    }
+
+    public ProfileSummary(Long id, String name, String openInfo, String closedInfo) {
+        this.id = id;
+        this.name = name;
+        this.openInfo = openInfo;
+        this.closedInfo = closedInfo;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOpenInfo() {
+        return openInfo;
+    }
+
+    public String getClosedInfo() {
+        return closedInfo;
+    }
+}
@@ -4,6 +4,10 @@ import jakarta.persistence.*;
 import org.example.datingapp.models.enums.RelationState;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_relation_pair",
+        columnNames = {"pair_low_id", "pair_high_id"}
+))
 public class Relation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -14,10 +18,32 @@ public class Relation {
     private Profile initiator;
 
     @ManyToOne
-    @JoinColumn(name = " aim_id")
+    @JoinColumn(name = "aim_id")
     private Profile aim;
+
+    @Enumerated(EnumType.STRING)
     private RelationState relationState;
 
+    // Bumped by every write, including the native upsert and JDBC batches, so that a state
+    // change based on a stale read fails instead of overwriting a concurrent one.
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // Unordered pair key: at most one relation may exist between two profiles, whoever initiated it.
+    @Column(name = "pair_low_id", nullable = false)
+    private Long pairLowId;
+
+    @Column(name = "pair_high_id", nullable = false)
+    private Long pairHighId;
+
+    @PrePersist
+    @PreUpdate
+    void fillPairKey() {
+        pairLowId = Math.min(initiator.getId(), aim.getId());
+        pairHighId = Math.max(initiator.getId(), aim.getId());
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,36 @@
+package org.example.datingapp.models;
+
+import org.example.datingapp.models.enums.RelationState;
+
+/**
+ * A relation reduced to the ids of its participants, read without loading either profile.
+ */
+public class RelationEdge {
+    private final Long id;
+    private final Long initiatorId;
+    private final Long aimId;
+    private final RelationState relationState;
+
+    public RelationEdge(Long id, Long initiatorId, Long aimId, RelationState relationState) {
+        this.id = id;
+        this.initiatorId = initiatorId;
+        this.aimId = aimId;
+        this.relationState = relationState;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getInitiatorId() {
+        return initiatorId;
+    }
+
+    public Long getAimId() {
+        return aimId;
+    }
+
+    public RelationState getRelationState() {
+        return relationState;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.datingapp.models;
+
+import org.example.datingapp.models.enums.RelationEventType;
+
+/**
+ * A change of the relation from initiator to aim, published after it is saved and pushed to
+ * both profiles.
+ */
+public class RelationEvent {
+    private final RelationEventType type;
+    private final Long initiatorId;
+    private final Long aimId;
+
+    public RelationEvent(RelationEventType type, Long initiatorId, Long aimId) {
+        this.type = type;
+        this.initiatorId = initiatorId;
+        this.aimId = aimId;
+    }
+
+    public RelationEventType getType() {
+        return type;
+    }
+
+    public Long getInitiatorId() {
+        return initiatorId;
+    }
+
+    public Long getAimId() {
+        return aimId;
+    }
+}
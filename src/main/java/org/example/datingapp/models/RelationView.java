@@ -0,0 +1,48 @@
+package org.example.datingapp.models;
+
+import org.example.datingapp.models.enums.RelationState;
+
+/**
+ * A relation with the public parts of both profiles, read in one row per relation. Closed
+ * information of the profiles is only selected when the relation is APPROVED.
+ */
+public class RelationView {
+    private final Long id;
+    private final ProfileSummary initiator;
+    private final ProfileSummary aim;
+    private final RelationState relationState;
+
+    public RelationView(
+            Long id,
+            Long initiatorId,
+            String initiatorName,
+            String initiatorOpenInfo,
+            String initiatorClosedInfo,
+            Long aimId,
+            String aimName,
+            String aimOpenInfo,
+            String aimClosedInfo,
+            RelationState relationState
+    ) {
+        this.id = id;
+        this.initiator = new ProfileSummary(initiatorId, initiatorName, initiatorOpenInfo, initiatorClosedInfo);
+        this.aim = new ProfileSummary(aimId, aimName, aimOpenInfo, aimClosedInfo);
+        this.relationState = relationState;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ProfileSummary getInitiator() {
+        return initiator;
+    }
+
+    public ProfileSummary getAim() {
+        return aim;
+    }
+
+    public RelationState getRelationState() {
+        return relationState;
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.datingapp.models.enums;
+
+public enum LikeResult {
+    CREATED,
+    MATCHED,
+    ALREADY_EXISTS,
+    PROFILE_NOT_FOUND,
+    SELF_LIKE,
+}
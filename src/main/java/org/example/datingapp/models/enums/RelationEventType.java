@@ -0,0 +1,7 @@
+package org.example.datingapp.models.enums;
+
+public enum RelationEventType {
+    LIKED,
+    MATCHED,
+    REJECTED,
+}
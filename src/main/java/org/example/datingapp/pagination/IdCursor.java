@@ -0,0 +1,42 @@
+package org.example.datingapp.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over ascending entity ids. Clients only ever see the encoded form,
+ * so the format can change without breaking them.
+ */
+public final class IdCursor {
+    private static final String PREFIX = "id:";
+
+    private IdCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Returns the id the next page starts after, or 0 for a missing or empty cursor.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Malformed cursor.");
+            }
+
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor.", e);
+        }
+    }
+}
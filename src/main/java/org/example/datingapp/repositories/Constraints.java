@@ -0,0 +1,28 @@
+package org.example.datingapp.repositories;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+public final class Constraints {
+    private Constraints() {
+    }
+
+    /**
+     * Returns whether the violation was raised by the named constraint. Neither the JPA nor the
+     * JDBC path exposes the name reliably, so the messages of the cause chain are searched, where
+     * H2 names the index backing the constraint.
+     */
+    public static boolean isViolated(DataIntegrityViolationException e, String constraintName) {
+        String name = constraintName.toUpperCase(Locale.ROOT);
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.toUpperCase(Locale.ROOT).contains(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
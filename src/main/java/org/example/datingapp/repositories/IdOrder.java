@@ -0,0 +1,34 @@
+package org.example.datingapp.repositories;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public final class IdOrder {
+    private IdOrder() {
+    }
+
+    /**
+     * Returns the rows loaded for the given ids in the order of the ids, skipping ids without a
+     * row, such as profiles deleted since the ids were read.
+     */
+    public static <T> List<T> arrange(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> rowsById = new HashMap<>();
+        for (T row : rows) {
+            rowsById.put(idOf.apply(row), row);
+        }
+
+        List<T> arranged = new ArrayList<>();
+        for (Long id : ids) {
+            T row = rowsById.get(id);
+
+            if (row != null) {
+                arranged.add(row);
+            }
+        }
+
+        return arranged;
+    }
+}
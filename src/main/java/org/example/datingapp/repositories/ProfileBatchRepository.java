@@ -0,0 +1,118 @@
+package org.example.datingapp.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.example.datingapp.models.Profile;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes many profiles per round-trip with JDBC batching, and streams them all out for
+ * snapshots, bypassing the persistence context.
+ */
+@Repository
+@Timed(value = "app.repository.calls", histogram = true)
+public class ProfileBatchRepository {
+    private static final String INSERT_PROFILE = """
+            INSERT INTO profile (name, email, password, open_info, closed_info)
+            VALUES (?, ?, ?, ?, ?)
+            """;
+    private static final String INSERT_PROFILE_WITH_ID = """
+            INSERT INTO profile (id, name, email, password, open_info, closed_info)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all profiles in one batch and sets the generated id on each of them.
+     */
+    @Transactional
+    public void insertAll(List<Profile> profiles) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_PROFILE, new String[] {"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Profile profile = profiles.get(i);
+                        statement.setString(1, profile.getName());
+                        statement.setString(2, profile.getEmail());
+                        statement.setString(3, profile.getPassword());
+                        statement.setString(4, profile.getOpenInfo());
+                        statement.setString(5, profile.getClosedInfo());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return profiles.size();
+                    }
+                },
+                keyHolder
+        );
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < profiles.size(); i++) {
+            Number id = (Number) keys.get(i).values().iterator().next();
+            profiles.get(i).setId(id.longValue());
+        }
+    }
+
+    /**
+     * Inserts the profiles with the ids they carry, as when restoring a snapshot. The identity
+     * column does not advance past explicit ids, so {@link #restartIdsAfter(long)} has to follow.
+     */
+    @Transactional
+    public void insertAllWithIds(List<Profile> profiles) {
+        jdbcTemplate.batchUpdate(INSERT_PROFILE_WITH_ID, profiles, profiles.size(), (statement, profile) -> {
+            statement.setLong(1, profile.getId());
+            statement.setString(2, profile.getName());
+            statement.setString(3, profile.getEmail());
+            statement.setString(4, profile.getPassword());
+            statement.setString(5, profile.getOpenInfo());
+            statement.setString(6, profile.getClosedInfo());
+        });
+    }
+
+    /**
+     * Makes the next generated id follow the given one. H2 commits the open transaction before
+     * running the statement.
+     */
+    public void restartIdsAfter(long maxId) {
+        jdbcTemplate.execute("ALTER TABLE profile ALTER COLUMN id RESTART WITH " + (maxId + 1));
+    }
+
+    /**
+     * Hands every profile to the action in id order, one row at a time.
+     */
+    public void forEach(Consumer<Profile> action) {
+        jdbcTemplate.query(
+                "SELECT id, name, email, password, open_info, closed_info FROM profile ORDER BY id",
+                (RowCallbackHandler) resultSet -> {
+                    Profile profile = new Profile();
+                    profile.setId(resultSet.getLong(1));
+                    profile.setName(resultSet.getString(2));
+                    profile.setEmail(resultSet.getString(3));
+                    profile.setPassword(resultSet.getString(4));
+                    profile.setOpenInfo(resultSet.getString(5));
+                    profile.setClosedInfo(resultSet.getString(6));
+                    action.accept(profile);
+                }
+        );
+    }
+}
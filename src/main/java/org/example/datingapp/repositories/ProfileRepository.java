@@ -1,14 +1,111 @@
 package org.example.datingapp.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.ProfileSummary;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProfileRepository extends JpaRepository<Profile, Long> {
     Profile findByEmail(String keyword);
 
-    List<Profile> findByOpenInfoContainingIgnoreCase(String keyword);
-}
\ No newline at end of file
+    /**
+     * Returns a page of profile summaries, reading only the public columns.
+     */
+    @Query(
+            value = "select new org.example.datingapp.models.ProfileSummary(p.id, p.name, p.openInfo) from Profile p",
+            countQuery = "select count(p) from Profile p"
+    )
+    Page<ProfileSummary> findSummaries(Pageable pageable);
+
+    /**
+     * Returns the summaries of the profiles with an id greater than the given one in id order.
+     */
+    @Query("""
+            select new org.example.datingapp.models.ProfileSummary(p.id, p.name, p.openInfo)
+            from Profile p
+            where p.id > :afterId
+            order by p.id
+            """)
+    List<ProfileSummary> findSummariesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("""
+            select new org.example.datingapp.models.ProfileSummary(p.id, p.name, p.openInfo)
+            from Profile p
+            where p.id in :ids
+            """)
+    List<ProfileSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Returns the summaries of the given profiles in the order of the ids, in one query.
+     */
+    default List<ProfileSummary> findSummariesInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return IdOrder.arrange(ids, findSummariesByIds(ids), ProfileSummary::getId);
+    }
+
+    /**
+     * Streams all profiles in id order from a database cursor. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select p from Profile p order by p.id")
+    Stream<Profile> streamAll();
+
+    @Query("select p.email from Profile p where p.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Returns the ids greater than the given one in ascending order, without loading profiles.
+     */
+    @Query("select p.id from Profile p where p.id > :afterId order by p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("select p.id from Profile p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Returns the profiles on the other side of the APPROVED relations of the given profile,
+     * whose closed information the match reveals. Both sides are unioned inside one subquery
+     * so that the profiles are fetched by primary key rather than scanned.
+     */
+    @Query(value = """
+            select new org.example.datingapp.models.ProfileSummary(p.id, p.name, p.openInfo, p.closedInfo)
+            from Profile p
+            where p.id in (
+                select r.aim.id from Relation r
+                where r.initiator.id = :profileId
+                    and r.relationState = org.example.datingapp.models.enums.RelationState.APPROVED
+                union all
+                select r.initiator.id from Relation r
+                where r.aim.id = :profileId
+                    and r.relationState = org.example.datingapp.models.enums.RelationState.APPROVED
+            )
+            """, countQuery = """
+            select count(p) from Profile p
+            where p.id in (
+                select r.aim.id from Relation r
+                where r.initiator.id = :profileId
+                    and r.relationState = org.example.datingapp.models.enums.RelationState.APPROVED
+                union all
+                select r.initiator.id from Relation r
+                where r.aim.id = :profileId
+                    and r.relationState = org.example.datingapp.models.enums.RelationState.APPROVED
+            )
+            """)
+    Page<ProfileSummary> findApprovedCounterparts(@Param("profileId") Long profileId, Pageable pageable);
+}
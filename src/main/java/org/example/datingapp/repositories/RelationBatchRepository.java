@@ -0,0 +1,138 @@
+package org.example.datingapp.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.enums.RelationState;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes many relations per round-trip with JDBC batching, and streams them all out for
+ * snapshots, bypassing the persistence context.
+ */
+@Repository
+@Timed(value = "app.repository.calls", histogram = true)
+public class RelationBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public RelationBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts PENDING relations from the initiator to every aim and promotes the given existing
+     * relations to APPROVED, all in one transaction. Fails and rolls back when one of those
+     * relations is no longer PENDING.
+     */
+    @Transactional
+    public void saveLikes(Long initiatorId, List<Long> newAimIds, List<Long> approvedRelationIds) {
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO relation (initiator_id, aim_id, pair_low_id, pair_high_id, relation_state, version)
+                        VALUES (?, ?, ?, ?, 'PENDING', 0)
+                        """,
+                newAimIds,
+                newAimIds.size(),
+                (statement, aimId) -> {
+                    statement.setLong(1, initiatorId);
+                    statement.setLong(2, aimId);
+                    statement.setLong(3, Math.min(initiatorId, aimId));
+                    statement.setLong(4, Math.max(initiatorId, aimId));
+                }
+        );
+        int[][] approvedCounts = jdbcTemplate.batchUpdate(
+                """
+                        UPDATE relation SET relation_state = 'APPROVED', version = version + 1
+                        WHERE id = ? AND relation_state = 'PENDING'
+                        """,
+                approvedRelationIds,
+                approvedRelationIds.size(),
+                (statement, relationId) -> statement.setLong(1, relationId)
+        );
+
+        for (int[] counts : approvedCounts) {
+            for (int count : counts) {
+                if (count == 0) {
+                    throw new OptimisticLockingFailureException("Relation is no longer pending.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts all relations in one batch with the state each of them carries. Their ids are
+     * ignored and generated by the database.
+     */
+    @Transactional
+    public void insertAll(List<RelationEdge> edges) {
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO relation (initiator_id, aim_id, pair_low_id, pair_high_id, relation_state, version)
+                        VALUES (?, ?, ?, ?, ?, 0)
+                        """,
+                edges,
+                edges.size(),
+                (statement, edge) -> {
+                    statement.setLong(1, edge.getInitiatorId());
+                    statement.setLong(2, edge.getAimId());
+                    statement.setLong(3, Math.min(edge.getInitiatorId(), edge.getAimId()));
+                    statement.setLong(4, Math.max(edge.getInitiatorId(), edge.getAimId()));
+                    statement.setString(5, edge.getRelationState().name());
+                }
+        );
+    }
+
+    /**
+     * Inserts the relations with the ids and states they carry, as when restoring a snapshot.
+     * Like {@link ProfileBatchRepository#insertAllWithIds(List)}, it has to be followed by
+     * {@link #restartIdsAfter(long)}.
+     */
+    @Transactional
+    public void insertAllWithIds(List<RelationEdge> edges) {
+        jdbcTemplate.batchUpdate(
+                """
+                        INSERT INTO relation (id, initiator_id, aim_id, pair_low_id, pair_high_id, relation_state, version)
+                        VALUES (?, ?, ?, ?, ?, ?, 0)
+                        """,
+                edges,
+                edges.size(),
+                (statement, edge) -> {
+                    statement.setLong(1, edge.getId());
+                    statement.setLong(2, edge.getInitiatorId());
+                    statement.setLong(3, edge.getAimId());
+                    statement.setLong(4, Math.min(edge.getInitiatorId(), edge.getAimId()));
+                    statement.setLong(5, Math.max(edge.getInitiatorId(), edge.getAimId()));
+                    statement.setString(6, edge.getRelationState().name());
+                }
+        );
+    }
+
+    /**
+     * Makes the next generated id follow the given one. H2 commits the open transaction before
+     * running the statement.
+     */
+    public void restartIdsAfter(long maxId) {
+        jdbcTemplate.execute("ALTER TABLE relation ALTER COLUMN id RESTART WITH " + (maxId + 1));
+    }
+
+    /**
+     * Hands every relation to the action in id order, one row at a time.
+     */
+    public void forEach(Consumer<RelationEdge> action) {
+        jdbcTemplate.query(
+                "SELECT id, initiator_id, aim_id, relation_state FROM relation ORDER BY id",
+                (RowCallbackHandler) resultSet -> action.accept(new RelationEdge(
+                        resultSet.getLong(1),
+                        resultSet.getLong(2),
+                        resultSet.getLong(3),
+                        RelationState.valueOf(resultSet.getString(4))
+                ))
+        );
+    }
+}
@@ -1,21 +1,120 @@
 package org.example.datingapp.repositories;
 
+import jakarta.persistence.QueryHint;
 import org.example.datingapp.models.Profile;
 import org.example.datingapp.models.Relation;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.RelationView;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface RelationsRepository extends JpaRepository<Relation, Long> {
-    List<Relation> findAllByInitiatorId(Long id);
+    /**
+     * Returns every relation the profile takes part in, from either side, with the public parts
+     * of both profiles joined in the same query. Closed information is only selected for
+     * APPROVED relations. The two sides are read as a union so that each goes through its own
+     * index; an or of the two would scan the table.
+     */
+    @Query("""
+            select new org.example.datingapp.models.RelationView(
+                r.id,
+                i.id, i.name, i.openInfo,
+                case when r.relationState = org.example.datingapp.models.enums.RelationState.APPROVED
+                    then i.closedInfo end,
+                a.id, a.name, a.openInfo,
+                case when r.relationState = org.example.datingapp.models.enums.RelationState.APPROVED
+                    then a.closedInfo end,
+                r.relationState
+            )
+            from Relation r
+            join r.initiator i
+            join r.aim a
+            where r.id in (
+                select s.id from Relation s where s.initiator.id = :profileId
+                union all
+                select s.id from Relation s where s.aim.id = :profileId
+            )
+            order by r.id
+            """)
+    List<RelationView> findViewsByParticipantId(@Param("profileId") Long profileId);
 
-    List<Relation> findAllByAimId(Long id);
+    Relation findRelationByAimAndInitiator(Profile aim, Profile initiator);
 
-    Relation findRelationByInitiatorAndAim(Profile initiator, Profile aim);
+    /**
+     * Returns the relations between the profile and any of the other profiles, in either direction.
+     */
+    @Query("""
+            select new org.example.datingapp.models.RelationEdge(r.id, r.initiator.id, r.aim.id, r.relationState)
+            from Relation r
+            where r.id in (
+                select s.id from Relation s where s.initiator.id = :profileId and s.aim.id in :otherIds
+                union all
+                select s.id from Relation s where s.aim.id = :profileId and s.initiator.id in :otherIds
+            )
+            """)
+    List<RelationEdge> findEdgesBetween(@Param("profileId") Long profileId, @Param("otherIds") Collection<Long> otherIds);
 
-    Relation findRelationByAimAndInitiator(Profile aim, Profile initiator);
+    /**
+     * Returns the relations with an id greater than the given one in id order, without loading
+     * their profiles, for reading the whole table in keyset batches.
+     */
+    @Query("""
+            select new org.example.datingapp.models.RelationEdge(r.id, r.initiator.id, r.aim.id, r.relationState)
+            from Relation r
+            where r.id > :afterId
+            order by r.id
+            """)
+    List<RelationEdge> findEdgesAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Streams all relations in id order from a database cursor, without loading their profiles.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new org.example.datingapp.models.RelationEdge(r.id, r.initiator.id, r.aim.id, r.relationState)
+            from Relation r
+            order by r.id
+            """)
+    Stream<RelationEdge> streamAllEdges();
 
-    boolean existsByInitiatorAndAim(Profile initiator, Profile aim);
+    /**
+     * Records a like in one statement: inserts a PENDING relation from initiator to aim, or
+     * promotes the PENDING relation the aim already started towards the initiator to APPROVED.
+     * Returns the initiator id of the inserted or promoted row, or null when the two profiles
+     * already have a relation that a like cannot change.
+     */
+    @Transactional
+    @Query(value = """
+            SELECT initiator_id FROM FINAL TABLE (
+                MERGE INTO relation r
+                USING (VALUES (CAST(:initiatorId AS BIGINT), CAST(:aimId AS BIGINT))) s(initiator_id, aim_id)
+                ON r.pair_low_id = LEAST(s.initiator_id, s.aim_id)
+                    AND r.pair_high_id = GREATEST(s.initiator_id, s.aim_id)
+                WHEN MATCHED AND r.initiator_id = s.aim_id AND r.relation_state = 'PENDING' THEN
+                    UPDATE SET relation_state = 'APPROVED', version = r.version + 1
+                WHEN NOT MATCHED THEN
+                    INSERT (initiator_id, aim_id, pair_low_id, pair_high_id, relation_state, version)
+                    VALUES (
+                        s.initiator_id,
+                        s.aim_id,
+                        LEAST(s.initiator_id, s.aim_id),
+                        GREATEST(s.initiator_id, s.aim_id),
+                        'PENDING',
+                        0
+                    )
+            )
+            """, nativeQuery = true)
+    Long upsertLike(@Param("initiatorId") Long initiatorId, @Param("aimId") Long aimId);
 }
@@ -0,0 +1,251 @@
+package org.example.datingapp.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.criteria.Subquery;
+import org.example.datingapp.fields.FieldSet;
+import org.example.datingapp.fields.SparseRow;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.Relation;
+import org.example.datingapp.models.enums.RelationState;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Repository
+@Timed(value = "app.repository.calls", histogram = true)
+public class SparseFieldsRepository {
+    public static final List<String> PROFILE_FIELDS = List.of("id", "name", "openInfo");
+    public static final List<String> MATCHED_PROFILE_FIELDS = List.of("id", "name", "openInfo", "closedInfo");
+    public static final List<String> RELATION_FIELDS = List.of(
+            "id",
+            "relationState",
+            "initiatorId",
+            "aimId",
+            "initiator",
+            "aim"
+    );
+
+    private static final List<String> NESTED_PROFILE_FIELDS = List.of("id", "name", "openInfo", "closedInfo");
+    private static final String ID_ALIAS = "_id";
+
+    private final EntityManager entityManager;
+
+    public SparseFieldsRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public Page<SparseRow> findProfiles(FieldSet fields, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Profile> profile = query.from(Profile.class);
+        query.multiselect(profileSelections(profile, fields)).orderBy(cb.asc(profile.get("id")));
+
+        List<SparseRow> content = toProfileRows(page(entityManager.createQuery(query), pageable), fields);
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+
+            return entityManager.createQuery(count.select(cb.count(count.from(Profile.class)))).getSingleResult();
+        });
+    }
+
+    public List<SparseRow> findProfilesAfter(FieldSet fields, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Profile> profile = query.from(Profile.class);
+        query.multiselect(profileSelections(profile, fields))
+                .where(cb.greaterThan(profile.get("id"), afterId))
+                .orderBy(cb.asc(profile.get("id")));
+
+        return toProfileRows(entityManager.createQuery(query).setMaxResults(limit).getResultList(), fields);
+    }
+
+    public List<SparseRow> findProfilesByIds(FieldSet fields, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Profile> profile = query.from(Profile.class);
+        query.multiselect(profileSelections(profile, fields)).where(profile.get("id").in(ids));
+
+        List<SparseRow> rows = toProfileRows(entityManager.createQuery(query).getResultList(), fields);
+
+        return IdOrder.arrange(ids, rows, SparseRow::getId);
+    }
+
+    public Page<SparseRow> findApprovedCounterparts(FieldSet fields, Long profileId, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Profile> profile = query.from(Profile.class);
+        query.multiselect(profileSelections(profile, fields))
+                .where(profile.get("id").in(approvedCounterpartIds(query, profileId)))
+                .orderBy(cb.asc(profile.get("id")));
+
+        List<SparseRow> content = toProfileRows(page(entityManager.createQuery(query), pageable), fields);
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<Profile> counted = count.from(Profile.class);
+            count.select(cb.count(counted)).where(counted.get("id").in(approvedCounterpartIds(count, profileId)));
+
+            return entityManager.createQuery(count).getSingleResult();
+        });
+    }
+
+    public List<SparseRow> findRelationsByParticipant(FieldSet fields, Long profileId) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Relation> relation = query.from(Relation.class);
+        Path<RelationState> state = relation.get("relationState");
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(relation.get("id").alias(ID_ALIAS));
+        for (String field : fields.names()) {
+            switch (field) {
+                case "id" -> {
+                }
+                case "relationState" -> selections.add(state.alias(field));
+                case "initiatorId" -> selections.add(relation.get("initiator").get("id").alias(field));
+                case "aimId" -> selections.add(relation.get("aim").get("id").alias(field));
+                case "initiator", "aim" -> {
+                    Join<Relation, Profile> nested = relation.join(field);
+                    for (String nestedField : NESTED_PROFILE_FIELDS) {
+                        Expression<?> value = nestedField.equals("closedInfo")
+                                ? cb.<String>selectCase()
+                                        .when(cb.equal(state, RelationState.APPROVED), nested.<String>get(nestedField))
+                                        .otherwise(cb.nullLiteral(String.class))
+                                : nested.get(nestedField);
+                        selections.add(value.alias(field + "." + nestedField));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown relation field: " + field);
+            }
+        }
+
+        query.multiselect(selections)
+                .where(relation.get("id").in(participantRelationIds(query, profileId)))
+                .orderBy(cb.asc(relation.get("id")));
+
+        return toRows(entityManager.createQuery(query).getResultList(), tuple -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+
+            for (String field : fields.names()) {
+                if (field.equals("initiator") || field.equals("aim")) {
+                    Map<String, Object> nested = new LinkedHashMap<>();
+                    for (String nestedField : NESTED_PROFILE_FIELDS) {
+                        Object value = tuple.get(field + "." + nestedField);
+                        if (value != null) {
+                            nested.put(nestedField, value);
+                        }
+                    }
+                    values.put(field, nested);
+                } else {
+                    values.put(field, tuple.get(field.equals("id") ? ID_ALIAS : field));
+                }
+            }
+
+            return values;
+        });
+    }
+
+    // A union of the two sides reads each half through the index on its side; an or of the two
+    // scans the table.
+    private Subquery<Long> participantRelationIds(CriteriaQuery<?> query, Long profileId) {
+        return hibernateCriteriaBuilder().unionAll(
+                sideRelationIds(query, profileId, "initiator", "id", null),
+                sideRelationIds(query, profileId, "aim", "id", null)
+        );
+    }
+
+    private Subquery<Long> approvedCounterpartIds(CriteriaQuery<?> query, Long profileId) {
+        return hibernateCriteriaBuilder().unionAll(
+                sideRelationIds(query, profileId, "initiator", "aim", RelationState.APPROVED),
+                sideRelationIds(query, profileId, "aim", "initiator", RelationState.APPROVED)
+        );
+    }
+
+    private Subquery<Long> sideRelationIds(
+            CriteriaQuery<?> query,
+            Long profileId,
+            String ownSide,
+            String selected,
+            RelationState state
+    ) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Root<Relation> relation = subquery.from(Relation.class);
+        Path<Long> selection = selected.equals("id") ? relation.get("id") : relation.get(selected).get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(relation.get(ownSide).get("id"), profileId));
+        if (state != null) {
+            predicates.add(cb.equal(relation.get("relationState"), state));
+        }
+
+        return subquery.select(selection).where(predicates.toArray(new Predicate[0]));
+    }
+
+    private HibernateCriteriaBuilder hibernateCriteriaBuilder() {
+        return (HibernateCriteriaBuilder) entityManager.getCriteriaBuilder();
+    }
+
+    private static List<Selection<?>> profileSelections(Root<Profile> profile, FieldSet fields) {
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(profile.get("id").alias(ID_ALIAS));
+
+        for (String field : fields.names()) {
+            if (!field.equals("id")) {
+                selections.add(profile.get(field).alias(field));
+            }
+        }
+
+        return selections;
+    }
+
+    private static List<Tuple> page(TypedQuery<Tuple> query, Pageable pageable) {
+        return query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize()).getResultList();
+    }
+
+    private static List<SparseRow> toProfileRows(List<Tuple> tuples, FieldSet fields) {
+        return toRows(tuples, tuple -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+
+            for (String field : fields.names()) {
+                values.put(field, tuple.get(field.equals("id") ? ID_ALIAS : field));
+            }
+
+            return values;
+        });
+    }
+
+    private static List<SparseRow> toRows(List<Tuple> tuples, Function<Tuple, Map<String, Object>> values) {
+        List<SparseRow> rows = new ArrayList<>(tuples.size());
+
+        for (Tuple tuple : tuples) {
+            rows.add(new SparseRow(tuple.get(ID_ALIAS, Long.class), values.apply(tuple)));
+        }
+
+        return rows;
+    }
+}
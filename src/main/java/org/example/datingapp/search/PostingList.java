@@ -0,0 +1,80 @@
+package org.example.datingapp.search;
+
+import java.util.Arrays;
+
+/**
+ * Ids of the documents containing one term, kept sorted in a primitive array together with
+ * the number of times the term occurs in each of them.
+ */
+class PostingList {
+    private long[] ids = new long[4];
+    private int[] frequencies = new int[4];
+    private int size;
+
+    void put(long id, int frequency) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+
+        if (index >= 0) {
+            frequencies[index] = frequency;
+            return;
+        }
+
+        int insertAt = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+        }
+
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(frequencies, insertAt, frequencies, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        frequencies[insertAt] = frequency;
+        size++;
+    }
+
+    void remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+
+        if (index < 0) {
+            return;
+        }
+
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * Returns how often the term occurs in the document, or 0 if it does not occur at all.
+     */
+    int frequency(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+
+        return index >= 0 ? frequencies[index] : 0;
+    }
+
+    long idAt(int index) {
+        return ids[index];
+    }
+
+    int frequencyAt(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * Returns the position of the first id greater than the given one.
+     */
+    int indexAfter(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,268 @@
+package org.example.datingapp.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process inverted index over Profile.openInfo. Every term maps to a posting list of the
+ * profiles containing it, and a forward map of terms per profile makes updates incremental.
+ * Queries are an AND over all their terms, ranked by tf-idf.
+ */
+@Component
+public class ProfileSearchIndex {
+    private static final Comparator<ScoredId> BEST_FIRST = Comparator
+            .comparingDouble((ScoredId scored) -> scored.score).reversed()
+            .thenComparingLong(scored -> scored.id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, PostingList> postings = new HashMap<>();
+    private Map<Long, String[]> documentTerms = new HashMap<>();
+    private List<Consumer<ProfileSearchIndex>> writesDuringRebuild;
+
+    public void index(Long profileId, String text) {
+        Map<String, Integer> frequencies = countTerms(Tokenizer.tokenize(text));
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(profileId);
+            recordForRebuild(index -> index.index(profileId, text));
+
+            if (frequencies.isEmpty()) {
+                return;
+            }
+
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new PostingList()).put(profileId, frequency));
+            documentTerms.put(profileId, frequencies.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long profileId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(profileId);
+            recordForRebuild(index -> index.remove(profileId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Consumer<ProfileSearchIndex> loader) {
+        lock.writeLock().lock();
+        try {
+            if (writesDuringRebuild != null) {
+                throw new IllegalStateException("Search index is already being rebuilt.");
+            }
+            writesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        ProfileSearchIndex rebuilt = new ProfileSearchIndex();
+        try {
+            loader.accept(rebuilt);
+        } catch (RuntimeException | Error e) {
+            lock.writeLock().lock();
+            try {
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Writes made while the loader ran are replayed, so none is lost to a row the loader
+            // read before it. The new index is private to this call, so taking its lock while
+            // holding this one cannot deadlock.
+            writesDuringRebuild.forEach(write -> write.accept(rebuilt));
+            writesDuringRebuild = null;
+            postings = rebuilt.postings;
+            documentTerms = rebuilt.documentTerms;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best ranked profiles matching every term of the query, skipping
+     * the first offset of them, together with the total number of matches.
+     */
+    public SearchResult search(String query, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = postingListsOf(query);
+
+            if (lists.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+
+            int documentCount = documentTerms.size();
+            double[] weights = new double[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                weights[i] = Math.log(1.0 + (double) documentCount / lists.get(i).size());
+            }
+
+            long wanted = offset + limit;
+            PriorityQueue<ScoredId> best = new PriorityQueue<>(BEST_FIRST.reversed());
+            long totalMatches = 0;
+            PostingList rarest = lists.get(0);
+
+            for (int i = 0; i < rarest.size(); i++) {
+                long id = rarest.idAt(i);
+                double score = rarest.frequencyAt(i) * weights[0];
+                boolean matches = true;
+
+                for (int j = 1; j < lists.size() && matches; j++) {
+                    int frequency = lists.get(j).frequency(id);
+                    matches = frequency > 0;
+                    score += frequency * weights[j];
+                }
+
+                if (!matches) {
+                    continue;
+                }
+
+                totalMatches++;
+                ScoredId candidate = new ScoredId(id, score);
+                if (best.size() < wanted) {
+                    best.add(candidate);
+                } else if (BEST_FIRST.compare(candidate, best.peek()) < 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+
+            List<ScoredId> ranked = new ArrayList<>(best);
+            ranked.sort(BEST_FIRST);
+
+            List<Long> ids = new ArrayList<>();
+            for (int i = (int) Math.min(offset, ranked.size()); i < ranked.size(); i++) {
+                ids.add(ranked.get(i).id);
+            }
+
+            return new SearchResult(ids, totalMatches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to limit ids of profiles matching every term of the query, in ascending id
+     * order starting after the given id, for keyset pagination.
+     */
+    public List<Long> searchAfter(String query, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = postingListsOf(query);
+            List<Long> ids = new ArrayList<>();
+
+            if (lists.isEmpty()) {
+                return ids;
+            }
+
+            PostingList rarest = lists.get(0);
+            for (int i = rarest.indexAfter(afterId); i < rarest.size() && ids.size() < limit; i++) {
+                long id = rarest.idAt(i);
+                boolean matches = true;
+
+                for (int j = 1; j < lists.size() && matches; j++) {
+                    matches = lists.get(j).frequency(id) > 0;
+                }
+
+                if (matches) {
+                    ids.add(id);
+                }
+            }
+
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentTerms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the posting lists of all distinct query terms, rarest first, or an empty list
+     * when some term is not indexed at all and nothing can match.
+     */
+    private List<PostingList> postingListsOf(String query) {
+        List<PostingList> lists = new ArrayList<>();
+
+        for (String term : new LinkedHashSet<>(Tokenizer.tokenize(query))) {
+            PostingList list = postings.get(term);
+
+            if (list == null || list.isEmpty()) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        return lists;
+    }
+
+    private void recordForRebuild(Consumer<ProfileSearchIndex> write) {
+        if (writesDuringRebuild != null) {
+            writesDuringRebuild.add(write);
+        }
+    }
+
+    private void removeDocument(Long profileId) {
+        String[] terms = documentTerms.remove(profileId);
+
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            list.remove(profileId);
+
+            if (list.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static Map<String, Integer> countTerms(List<String> tokens) {
+        Map<String, Integer> frequencies = new HashMap<>();
+
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        return frequencies;
+    }
+
+    private static class ScoredId {
+        private final long id;
+        private final double score;
+
+        private ScoredId(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
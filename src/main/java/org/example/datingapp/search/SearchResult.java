@@ -0,0 +1,21 @@
+package org.example.datingapp.search;
+
+import java.util.List;
+
+public class SearchResult {
+    private final List<Long> ids;
+    private final long totalMatches;
+
+    public SearchResult(List<Long> ids, long totalMatches) {
+        this.ids = ids;
+        this.totalMatches = totalMatches;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public long getTotalMatches() {
+        return totalMatches;
+    }
+}
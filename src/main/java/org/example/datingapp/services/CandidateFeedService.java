@@ -0,0 +1,237 @@
+package org.example.datingapp.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import org.example.datingapp.fields.FieldSet;
+import org.example.datingapp.fields.SparseRow;
+import org.example.datingapp.caches.ProfileCache;
+import org.example.datingapp.graph.RelationGraph;
+import org.example.datingapp.models.ProfileSummary;
+import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Discovery feed of profiles the viewer has no relation with yet. Every active viewer has a
+ * small queue of candidate ids, filled by walking the profile ids in order and skipping those
+ * the relation graph links to the viewer, so profiles that would be filtered out are never
+ * loaded. Queues are topped up in the background once they run low, and dropped when the
+ * viewer has been idle for a while.
+ */
+@Service
+@Timed(value = "app.service.calls", histogram = true)
+public class CandidateFeedService {
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    private final ProfileRepository profileRepository;
+    private final SparseFieldsRepository sparseFieldsRepository;
+    private final ProfileCache profileCache;
+    private final RelationGraph relationGraph;
+    private final Executor backgroundExecutor;
+    private final Cache<Long, CandidateQueue> queues;
+    private final int queueSize;
+    private final int refillThreshold;
+    private final Logger logger;
+
+    @Autowired
+    public CandidateFeedService(
+            ProfileRepository profileRepository,
+            SparseFieldsRepository sparseFieldsRepository,
+            ProfileCache profileCache,
+            RelationGraph relationGraph,
+            Executor backgroundExecutor,
+            long maximumActiveViewers,
+            Duration idleTimeout,
+            int queueSize,
+            int refillThreshold,
+            Logger prototypeLogger
+    ) {
+        if (refillThreshold >= queueSize) {
+            throw new IllegalArgumentException("Refill threshold must be less than the queue size.");
+        }
+
+        this.profileRepository = profileRepository;
+        this.sparseFieldsRepository = sparseFieldsRepository;
+        this.profileCache = profileCache;
+        this.relationGraph = relationGraph;
+        this.backgroundExecutor = backgroundExecutor;
+        this.queues = Caffeine.newBuilder()
+                .maximumSize(maximumActiveViewers)
+                .expireAfterAccess(idleTimeout)
+                .build();
+        this.queueSize = queueSize;
+        this.refillThreshold = refillThreshold;
+        this.logger = prototypeLogger;
+    }
+
+    /**
+     * Returns up to size profiles the viewer has neither liked, matched nor rejected, nor been
+     * liked or rejected by, continuing where the previous call stopped. An empty list means
+     * every profile has been shown; profiles registered later are picked up by later calls.
+     */
+    public List<ProfileSummary> nextCandidates(Long viewerId, int size) {
+        return profileRepository.findSummariesInOrder(nextCandidateIds(viewerId, size));
+    }
+
+    /**
+     * Same as {@link #nextCandidates(Long, int)}, reading only the requested fields.
+     */
+    public List<SparseRow> nextCandidates(Long viewerId, int size, FieldSet fields) {
+        return sparseFieldsRepository.findProfilesByIds(fields, nextCandidateIds(viewerId, size));
+    }
+
+    private List<Long> nextCandidateIds(Long viewerId, int size) {
+        if (size < 1 || size > queueSize) {
+            throw new IllegalArgumentException("Feed size must be between 1 and " + queueSize + ".");
+        }
+
+        if (profileCache.get(viewerId) == null) {
+            throw new NoSuchElementException("Profile not found.");
+        }
+
+        CandidateQueue queue = queues.get(viewerId, id -> new CandidateQueue(id, queueSize));
+        List<Long> ids = new ArrayList<>();
+
+        while (ids.size() < size) {
+            long candidateId = queue.poll();
+
+            if (candidateId == CandidateQueue.EMPTY) {
+                // Only the first request of a viewer, or one that outran the background refill,
+                // fills the queue on the request thread.
+                if (!refill(queue, true)) {
+                    break;
+                }
+                continue;
+            }
+
+            // The viewer may have liked or been liked by the candidate since it was queued.
+            if (!relationGraph.hasRelation(viewerId, candidateId)) {
+                ids.add(candidateId);
+            }
+        }
+
+        if (queue.size() < refillThreshold) {
+            scheduleRefill(queue);
+        }
+
+        logger.info("Served {} feed candidates to profile ID: {}", ids.size(), viewerId);
+
+        return ids;
+    }
+
+    private void scheduleRefill(CandidateQueue queue) {
+        try {
+            backgroundExecutor.execute(() -> refill(queue, false));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Feed refill for profile ID: {} was rejected", queue.viewerId);
+        }
+    }
+
+    /**
+     * Scans profile ids after the cursor of the queue until it holds queueSize candidates or no
+     * ids are left, and returns whether it added any. A background refill gives up when another
+     * refill of the same queue is running; a blocking one waits for it.
+     */
+    private boolean refill(CandidateQueue queue, boolean blocking) {
+        if (blocking) {
+            queue.refillLock.lock();
+        } else if (!queue.refillLock.tryLock()) {
+            return false;
+        }
+
+        try {
+            if (blocking && queue.size() > 0) {
+                return true;
+            }
+
+            int added = 0;
+            while (queue.size() < queueSize) {
+                List<Long> ids = profileRepository.findIdsAfter(queue.cursor, Limit.of(SCAN_BATCH_SIZE));
+
+                for (Long id : ids) {
+                    if (!id.equals(queue.viewerId) && !relationGraph.hasRelation(queue.viewerId, id)) {
+                        if (!queue.offer(id)) {
+                            break;
+                        }
+                        added++;
+                    }
+                    queue.cursor = id;
+                }
+
+                if (ids.size() < SCAN_BATCH_SIZE) {
+                    break;
+                }
+            }
+
+            return added > 0;
+        } catch (RuntimeException e) {
+            logger.warn("Feed refill for profile ID: {} failed", queue.viewerId, e);
+            if (blocking) {
+                throw e;
+            }
+            return false;
+        } finally {
+            queue.refillLock.unlock();
+        }
+    }
+
+    /**
+     * Candidate ids of one viewer in a ring buffer, and the last profile id scanned for them.
+     * The cursor is only touched while holding the refill lock.
+     */
+    private static class CandidateQueue {
+        // Returned by poll when the queue is empty; profile ids are positive.
+        private static final long EMPTY = 0L;
+
+        private final Long viewerId;
+        private final long[] candidateIds;
+        private final ReentrantLock refillLock = new ReentrantLock();
+        private int head;
+        private int size;
+        private long cursor;
+
+        CandidateQueue(Long viewerId, int capacity) {
+            this.viewerId = viewerId;
+            this.candidateIds = new long[capacity];
+        }
+
+        synchronized long poll() {
+            if (size == 0) {
+                return EMPTY;
+            }
+
+            long id = candidateIds[head];
+            head = (head + 1) % candidateIds.length;
+            size--;
+
+            return id;
+        }
+
+        synchronized boolean offer(long id) {
+            if (size == candidateIds.length) {
+                return false;
+            }
+
+            candidateIds[(head + size) % candidateIds.length] = id;
+            size++;
+
+            return true;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.datingapp.services;
+
+import jakarta.persistence.EntityManager;
+import org.example.datingapp.export.ExportWriter;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.enums.ExportFormat;
+import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.repositories.RelationsRepository;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streams every profile or relation to an output stream straight from a database cursor, so a
+ * full export runs in constant heap however large the tables are.
+ */
+@Service
+public class ExportService {
+    private static final List<String> PROFILE_COLUMNS = List.of("id", "name", "openInfo");
+    private static final List<String> RELATION_COLUMNS = List.of("id", "initiatorId", "aimId", "relationState");
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final ProfileRepository profileRepository;
+    private final RelationsRepository relationsRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Logger logger;
+
+    @Autowired
+    public ExportService(
+            ProfileRepository profileRepository,
+            RelationsRepository relationsRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            Logger prototypeLogger
+    ) {
+        this.profileRepository = profileRepository;
+        this.relationsRepository = relationsRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.logger = prototypeLogger;
+    }
+
+    public void exportProfiles(Long requesterId, ExportFormat format, OutputStream output) {
+        long exported = inReadOnlyTransaction(() -> {
+            try (Stream<Profile> profiles = profileRepository.streamAll()) {
+                return write(format, PROFILE_COLUMNS, output, profiles, profile -> {
+                    // Detach every profile once written so the persistence context stays empty.
+                    entityManager.detach(profile);
+                    return Arrays.asList(profile.getId(), profile.getName(), profile.getOpenInfo());
+                });
+            }
+        });
+
+        logger.info("Exported {} profiles as {} for profile ID: {}", exported, format, requesterId);
+    }
+
+    public void exportRelations(Long requesterId, ExportFormat format, OutputStream output) {
+        long exported = inReadOnlyTransaction(() -> {
+            try (Stream<RelationEdge> relations = relationsRepository.streamAllEdges()) {
+                return write(format, RELATION_COLUMNS, output, relations, relation -> Arrays.asList(
+                        relation.getId(),
+                        relation.getInitiatorId(),
+                        relation.getAimId(),
+                        relation.getRelationState()
+                ));
+            }
+        });
+
+        logger.info("Exported {} relations as {} for profile ID: {}", exported, format, requesterId);
+    }
+
+    private long inReadOnlyTransaction(ExportAction action) {
+        return readOnlyTransaction.execute(status -> {
+            try {
+                return action.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static <T> long write(
+            ExportFormat format,
+            List<String> columns,
+            OutputStream output,
+            Stream<T> rows,
+            RowMapper<T> mapper
+    ) throws IOException {
+        BufferedOutputStream bufferedOutput = new BufferedOutputStream(output, OUTPUT_BUFFER_SIZE);
+        long count = 0;
+
+        try (ExportWriter writer = ExportWriter.create(format, columns, bufferedOutput)) {
+            for (T row : (Iterable<T>) rows::iterator) {
+                writer.writeRow(mapper.map(row));
+                count++;
+            }
+        }
+        bufferedOutput.flush();
+
+        return count;
+    }
+
+    private interface ExportAction {
+        long run() throws IOException;
+    }
+
+    private interface RowMapper<T> {
+        List<Object> map(T row);
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.datingapp.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.ProfileImportReport;
+import org.example.datingapp.repositories.Constraints;
+import org.example.datingapp.repositories.ProfileBatchRepository;
+import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.search.ProfileSearchIndex;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports newline-delimited JSON profiles from a stream, one batch at a time, so memory use
+ * depends on the batch size and not on the size of the import.
+ */
+@Service
+public class ProfileImportService {
+    private final ProfileRepository profileRepository;
+    private final ProfileBatchRepository profileBatchRepository;
+    private final ProfileSearchIndex profileSearchIndex;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Logger logger;
+
+    @Autowired
+    public ProfileImportService(
+            ProfileRepository profileRepository,
+            ProfileBatchRepository profileBatchRepository,
+            ProfileSearchIndex profileSearchIndex,
+            ObjectMapper objectMapper,
+            int batchSize,
+            Logger prototypeLogger
+    ) {
+        this.profileRepository = profileRepository;
+        this.profileBatchRepository = profileBatchRepository;
+        this.profileSearchIndex = profileSearchIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.logger = prototypeLogger;
+    }
+
+    public ProfileImportReport importProfiles(InputStream input) throws IOException {
+        ProfileImportReport report = new ProfileImportReport();
+        List<ImportLine> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+
+            if (line.isBlank()) {
+                continue;
+            }
+
+            report.lineProcessed();
+            try {
+                batch.add(new ImportLine(lineNumber, parseProfile(line)));
+            } catch (IllegalArgumentException e) {
+                report.lineFailed(lineNumber, e.getMessage());
+            }
+
+            if (batch.size() == batchSize) {
+                saveBatch(batch, report);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            saveBatch(batch, report);
+        }
+
+        logger.info(
+                "Profile import finished: {} lines processed, {} profiles imported, {} lines failed",
+                report.getProcessedLines(),
+                report.getImportedProfiles(),
+                report.getFailedLines()
+        );
+
+        return report;
+    }
+
+    private Profile parseProfile(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON.");
+        }
+
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Line is not a JSON object.");
+        }
+
+        String email = textOf(node, "email");
+        if (email == null || email.isBlank()) {
+            throw new IllegalArgumentException("Email is required.");
+        }
+
+        Profile profile = new Profile();
+        profile.setName(textOf(node, "name"));
+        profile.setEmail(email);
+        profile.setPassword(textOf(node, "password"));
+        profile.setOpenInfo(textOf(node, "openInfo"));
+        profile.setClosedInfo(textOf(node, "closedInfo"));
+
+        return profile;
+    }
+
+    /**
+     * Saves every profile of the batch whose email is not taken, checking all emails of the
+     * batch in a single query.
+     */
+    private void saveBatch(List<ImportLine> batch, ProfileImportReport report) {
+        Set<String> emails = new HashSet<>();
+        for (ImportLine importLine : batch) {
+            emails.add(importLine.profile.getEmail());
+        }
+
+        Set<String> takenEmails = new HashSet<>(profileRepository.findExistingEmails(emails));
+        List<ImportLine> accepted = new ArrayList<>();
+
+        for (ImportLine importLine : batch) {
+            String email = importLine.profile.getEmail();
+
+            if (takenEmails.contains(email)) {
+                report.lineFailed(importLine.number, "Profile with this email already exists.");
+            } else {
+                takenEmails.add(email);
+                accepted.add(importLine);
+            }
+        }
+
+        List<Profile> profiles = new ArrayList<>(accepted.size());
+        for (ImportLine importLine : accepted) {
+            profiles.add(importLine.profile);
+        }
+
+        try {
+            profileBatchRepository.insertAll(profiles);
+        } catch (DataIntegrityViolationException e) {
+            // A profile with one of these emails was registered while the batch was checked, or
+            // a line breaks another constraint; saving one by one isolates the offending lines.
+            saveOneByOne(accepted, report);
+            return;
+        }
+
+        for (Profile profile : profiles) {
+            profileSearchIndex.index(profile.getId(), profile.getOpenInfo());
+        }
+        report.profilesImported(profiles.size());
+
+        logger.info(
+                "Profile import progress: {} lines processed, {} profiles imported",
+                report.getProcessedLines(),
+                report.getImportedProfiles()
+        );
+    }
+
+    private void saveOneByOne(List<ImportLine> lines, ProfileImportReport report) {
+        for (ImportLine importLine : lines) {
+            try {
+                profileBatchRepository.insertAll(List.of(importLine.profile));
+                profileSearchIndex.index(importLine.profile.getId(), importLine.profile.getOpenInfo());
+                report.profilesImported(1);
+            } catch (DataIntegrityViolationException e) {
+                if (Constraints.isViolated(e, Profile.EMAIL_CONSTRAINT)) {
+                    report.lineFailed(importLine.number, "Profile with this email already exists.");
+                } else {
+                    logger.warn("Import line {} violates a database constraint", importLine.number, e);
+                    report.lineFailed(importLine.number, "Profile violates a database constraint.");
+                }
+            }
+        }
+    }
+
+    private static String textOf(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static class ImportLine {
+        private final long number;
+        private final Profile profile;
+
+        private ImportLine(long number, Profile profile) {
+            this.number = number;
+            this.profile = profile;
+        }
+    }
+}
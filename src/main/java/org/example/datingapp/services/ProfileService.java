@@ -1,33 +1,96 @@
 package org.example.datingapp.services;
 
+import io.micrometer.core.annotation.Timed;
+import org.example.datingapp.fields.FieldSet;
+import org.example.datingapp.fields.SparseRow;
+import org.example.datingapp.caches.ProfileCache;
 import org.example.datingapp.models.Profile;
-import org.example.datingapp.models.Relation;
-import org.example.datingapp.models.enums.RelationState;
+import org.example.datingapp.models.ProfileSummary;
+import org.example.datingapp.pagination.CursorPage;
+import org.example.datingapp.pagination.IdCursor;
+import org.example.datingapp.repositories.Constraints;
 import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.example.datingapp.search.ProfileSearchIndex;
+import org.example.datingapp.search.SearchResult;
+import org.example.datingapp.versions.ContentVersions;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Service
-public class ProfileService {
+@Timed(value = "app.service.calls", histogram = true)
+public class ProfileService implements SmartInitializingSingleton {
+    private static final int INDEX_REBUILD_BATCH_SIZE = 1000;
+
     private final ProfileRepository profileRepository;
+    private final SparseFieldsRepository sparseFieldsRepository;
+    private final ProfileSearchIndex profileSearchIndex;
+    private final ProfileCache profileCache;
+    private final ContentVersions contentVersions;
     private final Logger logger;
 
     @Autowired
-    public ProfileService(ProfileRepository profileRepository, Logger prototypeLogger) {
+    public ProfileService(
+            ProfileRepository profileRepository,
+            SparseFieldsRepository sparseFieldsRepository,
+            ProfileSearchIndex profileSearchIndex,
+            ProfileCache profileCache,
+            ContentVersions contentVersions,
+            Logger prototypeLogger
+    ) {
         this.profileRepository = profileRepository;
+        this.sparseFieldsRepository = sparseFieldsRepository;
+        this.profileSearchIndex = profileSearchIndex;
+        this.profileCache = profileCache;
+        this.contentVersions = contentVersions;
         this.logger = prototypeLogger;
     }
 
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuildSearchIndex();
+    }
+
+    public void rebuildSearchIndex() {
+        profileSearchIndex.rebuild(index -> {
+            long afterId = 0L;
+            List<ProfileSummary> batch;
+            do {
+                batch = profileRepository.findSummariesAfter(afterId, Limit.of(INDEX_REBUILD_BATCH_SIZE));
+
+                for (ProfileSummary profile : batch) {
+                    index.index(profile.getId(), profile.getOpenInfo());
+                    afterId = profile.getId();
+                }
+            } while (batch.size() == INDEX_REBUILD_BATCH_SIZE);
+        });
+
+        contentVersions.invalidateAll();
+        logger.info("Search index rebuilt with {} profiles", profileSearchIndex.size());
+    }
+
     public Profile registerProfile(String name, String email, String password, String openInfo, String closedInfo) {
         if (profileRepository.findByEmail(email) != null) {
             throw new IllegalArgumentException("Profile with this email already exists.");
         }
 
         Profile profile = createProfile(name, email, password, openInfo, closedInfo);
-        Profile savedProfile = profileRepository.save(profile);
+        Profile savedProfile = saveUniqueEmail(profile);
+        profileSearchIndex.index(savedProfile.getId(), savedProfile.getOpenInfo());
         logger.info("Profile created successfully with email: {}", savedProfile.getEmail());
 
         return savedProfile;
@@ -68,7 +131,10 @@ public class ProfileService {
             }
         });
 
-        Profile updatedProfile = profileRepository.save(profile);
+        Profile updatedProfile = saveUniqueEmail(profile);
+        profileCache.invalidate(profileId);
+        contentVersions.profileChanged(profileId);
+        profileSearchIndex.index(updatedProfile.getId(), updatedProfile.getOpenInfo());
         logger.info("Profile with ID: {} updated successfully", profileId);
 
         return updatedProfile;
@@ -82,6 +148,9 @@ public class ProfileService {
         }
 
         profileRepository.delete(profile);
+        profileCache.invalidate(profileId);
+        contentVersions.profileChanged(profileId);
+        profileSearchIndex.remove(profileId);
         logger.info("Profile with ID: {} deleted successfully", profileId);
     }
 
@@ -100,24 +169,51 @@ public class ProfileService {
         return profile;
     }
 
-    public List<Profile> getAllWithPaginationAndKeyword(int offset, int limit, String keyword) {
-        if (keyword == null || keyword.isEmpty()) {
-            List<Profile> allProfiles = profileRepository.findAll();
+    public Page<ProfileSummary> getAllWithPaginationAndKeyword(int page, int size, String keyword) {
+        return getPage(page, size, keyword, profileRepository::findSummaries, profileRepository::findSummariesInOrder);
+    }
 
-            return allProfiles.size() - 1 >= limit
-                    ? allProfiles.subList(offset, limit)
-                    : allProfiles.subList(offset, allProfiles.size());
-        }
+    /**
+     * Same as {@link #getAllWithPaginationAndKeyword(int, int, String)}, reading only the
+     * requested fields.
+     */
+    public Page<SparseRow> getAllWithPaginationAndKeyword(int page, int size, String keyword, FieldSet fields) {
+        return getPage(
+                page,
+                size,
+                keyword,
+                pageable -> sparseFieldsRepository.findProfiles(fields, pageable),
+                ids -> sparseFieldsRepository.findProfilesByIds(fields, ids)
+        );
+    }
 
-        List<Profile> allProfilesWithKeyword = profileRepository.findByOpenInfoContainingIgnoreCase(keyword);
+    public CursorPage<ProfileSummary> getAllAfterCursor(String cursor, int size, String keyword) {
+        return getCursorPage(
+                cursor,
+                size,
+                keyword,
+                (afterId, limit) -> profileRepository.findSummariesAfter(afterId, Limit.of(limit)),
+                profileRepository::findSummariesInOrder,
+                ProfileSummary::getId
+        );
+    }
 
-        return allProfilesWithKeyword.size() - 1 >= limit
-                ? allProfilesWithKeyword.subList(offset, limit)
-                : allProfilesWithKeyword.subList(offset, allProfilesWithKeyword.size());
+    /**
+     * Same as {@link #getAllAfterCursor(String, int, String)}, reading only the requested fields.
+     */
+    public CursorPage<SparseRow> getAllAfterCursor(String cursor, int size, String keyword, FieldSet fields) {
+        return getCursorPage(
+                cursor,
+                size,
+                keyword,
+                (afterId, limit) -> sparseFieldsRepository.findProfilesAfter(fields, afterId, limit),
+                ids -> sparseFieldsRepository.findProfilesByIds(fields, ids),
+                SparseRow::getId
+        );
     }
 
     public Profile getProfile(Long id) {
-        Profile profile = profileRepository.findById(id).orElse(null);
+        Profile profile = profileCache.get(id);
 
         if (profile != null) {
             logger.info("Retrieved profile with ID: {}", id);
@@ -128,22 +224,109 @@ public class ProfileService {
         return profile;
     }
 
-    public List<Profile> getAllApprovedProfiles(Long profileId, List<Relation> profileRelations) {
-        List<Profile> approvedProfiles = new ArrayList<>();
+    public Page<ProfileSummary> getAllApprovedProfiles(Long profileId, int page, int size) {
+        Page<ProfileSummary> approvedProfiles = profileRepository.findApprovedCounterparts(
+                profileId,
+                PageRequest.of(page, size, Sort.by("id"))
+        );
 
-        for (Relation relation : profileRelations) {
-            if (RelationState.APPROVED.equals(relation.getRelationState())) {
-                if (relation.getInitiator().getId().equals(profileId)) {
-                    approvedProfiles.add(relation.getAim());
-                } else if (relation.getAim().getId().equals(profileId)) {
-                    approvedProfiles.add(relation.getInitiator());
-                }
+        logger.info("Retrieved {} approved profiles for profile ID: {}", approvedProfiles.getNumberOfElements(), profileId);
+
+        return approvedProfiles;
+    }
+
+    public Page<SparseRow> getAllApprovedProfiles(Long profileId, int page, int size, FieldSet fields) {
+        Page<SparseRow> approvedProfiles = sparseFieldsRepository.findApprovedCounterparts(
+                fields,
+                profileId,
+                PageRequest.of(page, size, Sort.by("id"))
+        );
+
+        logger.info("Retrieved {} approved profiles for profile ID: {}", approvedProfiles.getNumberOfElements(), profileId);
+
+        return approvedProfiles;
+    }
+
+    /**
+     * Pages through all profiles, or through those matching the keyword in relevance order, with
+     * the given loaders for a page of all profiles and for the profiles with given ids.
+     */
+    private <T> Page<T> getPage(
+            int page,
+            int size,
+            String keyword,
+            Function<Pageable, Page<T>> findAll,
+            Function<List<Long>, List<T>> findAllInOrder
+    ) {
+        Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+
+        if (keyword == null || keyword.isEmpty()) {
+            return findAll.apply(pageable);
+        }
+
+        SearchResult result = profileSearchIndex.search(keyword, pageable.getOffset(), size);
+
+        return new PageImpl<>(findAllInOrder.apply(result.getIds()), pageable, result.getTotalMatches());
+    }
+
+    /**
+     * Reads one row past the page to find out whether another page follows, with the given
+     * loaders for the profiles after an id and for the profiles with given ids.
+     */
+    private <T> CursorPage<T> getCursorPage(
+            String cursor,
+            int size,
+            String keyword,
+            BiFunction<Long, Integer, List<T>> findAfter,
+            Function<List<Long>, List<T>> findAllInOrder,
+            ToLongFunction<T> idOf
+    ) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one.");
+        }
+
+        long afterId = IdCursor.decode(cursor);
+
+        if (keyword == null || keyword.isEmpty()) {
+            List<T> profiles = findAfter.apply(afterId, size + 1);
+
+            if (profiles.size() <= size) {
+                return new CursorPage<>(profiles, null);
             }
+
+            List<T> content = profiles.subList(0, size);
+
+            return new CursorPage<>(content, IdCursor.encode(idOf.applyAsLong(content.get(size - 1))));
         }
 
-        logger.info("Retrieved {} approved profiles for profile ID: {}", approvedProfiles.size(), profileId);
+        // The page ends at the last indexed id, so profiles deleted since they were indexed
+        // only shorten it instead of ending the pagination early.
+        List<Long> ids = profileSearchIndex.searchAfter(keyword, afterId, size + 1);
 
-        return approvedProfiles;
+        if (ids.size() <= size) {
+            return new CursorPage<>(findAllInOrder.apply(ids), null);
+        }
+
+        List<Long> pageIds = ids.subList(0, size);
+
+        return new CursorPage<>(findAllInOrder.apply(pageIds), IdCursor.encode(pageIds.get(size - 1)));
+    }
+
+    /**
+     * Saves the profile, reporting an email taken by a concurrent registration or update the
+     * same way as one found by the lookup before it.
+     */
+    private Profile saveUniqueEmail(Profile profile) {
+        try {
+            return profileRepository.save(profile);
+        } catch (DataIntegrityViolationException e) {
+            if (!Constraints.isViolated(e, Profile.EMAIL_CONSTRAINT)) {
+                throw e;
+            }
+
+            logger.warn("Unique email constraint rejected profile with email: {}", profile.getEmail());
+            throw new IllegalArgumentException("Profile with this email already exists.");
+        }
     }
 
     private Profile createProfile(
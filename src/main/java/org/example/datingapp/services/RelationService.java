@@ -1,85 +1,282 @@
 package org.example.datingapp.services;
 
+import io.micrometer.core.annotation.Timed;
+import org.example.datingapp.fields.FieldSet;
+import org.example.datingapp.fields.SparseRow;
+import org.example.datingapp.caches.ProfileCache;
+import org.example.datingapp.caches.SingleFlight;
+import org.example.datingapp.graph.RelationGraph;
+import org.example.datingapp.locks.PairLocks;
 import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.LikeBatchItem;
 import org.example.datingapp.models.Relation;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.RelationEvent;
+import org.example.datingapp.models.RelationView;
+import org.example.datingapp.models.enums.LikeResult;
+import org.example.datingapp.models.enums.RelationEventType;
 import org.example.datingapp.models.enums.RelationState;
 import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.repositories.RelationBatchRepository;
 import org.example.datingapp.repositories.RelationsRepository;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.example.datingapp.versions.ContentVersions;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 @Service
-public class RelationService {
+@Timed(value = "app.service.calls", histogram = true)
+public class RelationService implements SmartInitializingSingleton {
+    private static final int MAX_LIKE_BATCH_SIZE = 1000;
+    private static final int GRAPH_REBUILD_BATCH_SIZE = 10000;
+
     private final RelationsRepository relationsRepository;
+    private final RelationBatchRepository relationBatchRepository;
+    private final SparseFieldsRepository sparseFieldsRepository;
     private final ProfileRepository profileRepository;
+    private final ProfileCache profileCache;
+    private final RelationGraph relationGraph;
+    private final ContentVersions contentVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<Long, List<RelationView>> relationLoads = new SingleFlight<>();
+    private final PairLocks pairLocks = new PairLocks();
     private final Logger logger;
 
     @Autowired
     public RelationService(
             RelationsRepository relationsRepository,
+            RelationBatchRepository relationBatchRepository,
+            SparseFieldsRepository sparseFieldsRepository,
             ProfileRepository profileRepository,
+            ProfileCache profileCache,
+            RelationGraph relationGraph,
+            ContentVersions contentVersions,
+            ApplicationEventPublisher eventPublisher,
             Logger prototypeLogger
     ) {
         this.relationsRepository = relationsRepository;
+        this.relationBatchRepository = relationBatchRepository;
+        this.sparseFieldsRepository = sparseFieldsRepository;
         this.profileRepository = profileRepository;
+        this.profileCache = profileCache;
+        this.relationGraph = relationGraph;
+        this.contentVersions = contentVersions;
+        this.eventPublisher = eventPublisher;
         this.logger = prototypeLogger;
     }
 
-    public boolean saveRelation(Long initiatorId, Long aimId) {
-        Profile initiator = profileRepository.findById(initiatorId)
-                .orElseThrow(() -> new NoSuchElementException("Initiator profile not found."));
-        Profile aim = profileRepository.findById(aimId)
-                .orElseThrow(() -> new NoSuchElementException("Aim profile not found."));
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuildRelationGraph();
+    }
 
-        if (relationsRepository.existsByInitiatorAndAim(initiator, aim)) {
-            throw new IllegalArgumentException("Relation already exists.");
-        } else if(relationsRepository.existsByInitiatorAndAim(aim, initiator)) {
-            Relation relation = relationsRepository.findRelationByInitiatorAndAim(aim, initiator);
+    public void rebuildRelationGraph() {
+        relationGraph.rebuild(graph -> {
+            long afterId = 0L;
+            List<RelationEdge> batch;
+            do {
+                batch = relationsRepository.findEdgesAfter(afterId, Limit.of(GRAPH_REBUILD_BATCH_SIZE));
 
-            relation.setRelationState(RelationState.APPROVED);
-            relationsRepository.save(relation);
+                for (RelationEdge edge : batch) {
+                    graph.put(edge.getInitiatorId(), edge.getAimId(), edge.getRelationState());
+                    afterId = edge.getId();
+                }
+            } while (batch.size() == GRAPH_REBUILD_BATCH_SIZE);
+        });
 
-            return false;
-        } else {
-            Relation relation = new Relation();
+        contentVersions.invalidateAll();
+        logger.info(
+                "Relation graph rebuilt with {} relations between {} profiles in about {} MB",
+                relationGraph.relationCount(),
+                relationGraph.profileCount(),
+                relationGraph.estimatedBytes() >> 20
+        );
+    }
 
-            relation.setInitiator(initiator);
-            relation.setAim(aim);
-            relation.setRelationState(RelationState.PENDING);
-            relationsRepository.save(relation);
+    /**
+     * Writes to a pair of profiles, here and in every other method, hold the lock of that pair,
+     * so concurrent likes, answers and deletions of one pair apply one at a time while other
+     * pairs proceed in parallel. The relation version catches writes from other instances.
+     */
+    public LikeResult saveRelation(Long initiatorId, Long aimId) {
+        if (initiatorId.equals(aimId)) {
+            throw new IllegalArgumentException("Profile cannot like itself.");
+        }
+
+        return pairLocks.withLock(initiatorId, aimId, () -> saveRelationLocked(initiatorId, aimId));
+    }
+
+    private LikeResult saveRelationLocked(Long initiatorId, Long aimId) {
+        Long savedInitiatorId;
+        try {
+            savedInitiatorId = relationsRepository.upsertLike(initiatorId, aimId);
+        } catch (DataIntegrityViolationException e) {
+            // Either a profile is missing, or the other side inserted the pair concurrently
+            // and retrying now promotes that row.
+            if (!profileRepository.existsById(initiatorId)) {
+                throw new NoSuchElementException("Initiator profile not found.");
+            } else if (!profileRepository.existsById(aimId)) {
+                throw new NoSuchElementException("Aim profile not found.");
+            }
+
+            savedInitiatorId = relationsRepository.upsertLike(initiatorId, aimId);
+        }
 
+        if (savedInitiatorId == null) {
+            // A repeated like, or a like of a profile that already matched with or rejected the
+            // initiator, leaves the relation as it is.
+            logger.info("Relation between initiator ID: {} and aim ID: {} already exists", initiatorId, aimId);
+            return LikeResult.ALREADY_EXISTS;
+        }
+
+        forgetRelationLoads(initiatorId, aimId);
+
+        if (savedInitiatorId.equals(aimId)) {
+            relationGraph.put(aimId, initiatorId, RelationState.APPROVED);
+            publish(RelationEventType.MATCHED, aimId, initiatorId);
+            logger.info("Approved mutual relation between initiator ID: {} and aim ID: {}", aimId, initiatorId);
+            return LikeResult.MATCHED;
+        } else {
+            relationGraph.addLike(initiatorId, aimId);
+            publish(RelationEventType.LIKED, initiatorId, aimId);
             logger.info("Saved new relation between initiator ID: {} and aim ID: {}", initiatorId, aimId);
-            return true;
+            return LikeResult.CREATED;
         }
     }
 
-    public void approveRelation(Long aimId, Long initiatorId) {
-        Relation relation = getRelationByAimAndInitiator(aimId, initiatorId);
+    /**
+     * Records likes from the initiator to many profiles at once, with one existence check for
+     * all aims and one JDBC batch per kind of write, and reports the outcome of every item.
+     */
+    public List<LikeBatchItem> saveRelations(Long initiatorId, List<Long> aimIds) {
+        if (aimIds.size() > MAX_LIKE_BATCH_SIZE) {
+            throw new IllegalArgumentException("Too many likes in one batch.");
+        }
+
+        if (!profileRepository.existsById(initiatorId)) {
+            throw new NoSuchElementException("Initiator profile not found.");
+        }
 
-        if(relation.getRelationState().equals(RelationState.PENDING)) {
+        Set<Long> distinctAimIds = new HashSet<>(aimIds);
+        distinctAimIds.remove(null);
+        if (distinctAimIds.isEmpty()) {
+            return saveRelationsOneByOne(initiatorId, aimIds);
+        }
+
+        return pairLocks.withLocks(
+                initiatorId,
+                distinctAimIds,
+                () -> saveRelationsLocked(initiatorId, aimIds, distinctAimIds)
+        );
+    }
+
+    private List<LikeBatchItem> saveRelationsLocked(Long initiatorId, List<Long> aimIds, Set<Long> distinctAimIds) {
+        Set<Long> existingAimIds = new HashSet<>(profileRepository.findExistingIds(distinctAimIds));
+        Map<Long, RelationEdge> edgesByAimId = new HashMap<>();
+        for (RelationEdge edge : relationsRepository.findEdgesBetween(initiatorId, distinctAimIds)) {
+            Long otherId = initiatorId.equals(edge.getInitiatorId()) ? edge.getAimId() : edge.getInitiatorId();
+            edgesByAimId.put(otherId, edge);
+        }
+
+        List<LikeBatchItem> items = new ArrayList<>();
+        List<Long> newAimIds = new ArrayList<>();
+        List<Long> approvedRelationIds = new ArrayList<>();
+        List<Long> matchedAimIds = new ArrayList<>();
+        Set<Long> seenAimIds = new HashSet<>();
+
+        for (Long aimId : aimIds) {
+            LikeResult result;
+
+            if (!existingAimIds.contains(aimId)) {
+                result = LikeResult.PROFILE_NOT_FOUND;
+            } else if (initiatorId.equals(aimId)) {
+                result = LikeResult.SELF_LIKE;
+            } else if (!seenAimIds.add(aimId)) {
+                result = LikeResult.ALREADY_EXISTS;
+            } else {
+                RelationEdge edge = edgesByAimId.get(aimId);
+
+                if (edge == null) {
+                    newAimIds.add(aimId);
+                    result = LikeResult.CREATED;
+                } else if (initiatorId.equals(edge.getInitiatorId())
+                        || edge.getRelationState() != RelationState.PENDING) {
+                    result = LikeResult.ALREADY_EXISTS;
+                } else {
+                    approvedRelationIds.add(edge.getId());
+                    matchedAimIds.add(aimId);
+                    result = LikeResult.MATCHED;
+                }
+            }
+
+            items.add(new LikeBatchItem(aimId, result));
+        }
+
+        try {
+            relationBatchRepository.saveLikes(initiatorId, newAimIds, approvedRelationIds);
+        } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            // Another instance or a profile deletion touched one of the pairs since they were
+            // read, so settle every item with its own upsert instead.
+            logger.warn("Batched likes of initiator ID: {} conflicted, saving them one by one", initiatorId);
+            return saveRelationsOneByOne(initiatorId, aimIds);
+        }
+
+        for (Long aimId : newAimIds) {
+            relationGraph.addLike(initiatorId, aimId);
+            publish(RelationEventType.LIKED, initiatorId, aimId);
+        }
+        for (Long aimId : matchedAimIds) {
+            relationGraph.put(aimId, initiatorId, RelationState.APPROVED);
+            publish(RelationEventType.MATCHED, aimId, initiatorId);
+        }
+        forgetRelationLoads(initiatorId);
+        seenAimIds.forEach(this::forgetRelationLoads);
+        logger.info(
+                "Saved {} new and {} mutual relations for initiator ID: {}",
+                newAimIds.size(),
+                approvedRelationIds.size(),
+                initiatorId
+        );
+
+        return items;
+    }
+
+    public void approveRelation(Long aimId, Long initiatorId) {
+        pairLocks.withLock(aimId, initiatorId, () -> {
+            Relation relation = getPendingRelation(aimId, initiatorId);
             relation.setRelationState(RelationState.APPROVED);
-            relationsRepository.save(relation);
+            savePendingAnswer(relation);
+            relationGraph.put(initiatorId, aimId, RelationState.APPROVED);
+            publish(RelationEventType.MATCHED, initiatorId, aimId);
+            forgetRelationLoads(aimId, initiatorId);
             logger.info("Approved relation with ID: {}", relation.getId());
-        } else {
-            throw new NoSuchElementException("Such pending relation was not found.");
-        }
+        });
     }
 
     public void rejectRelation(Long aimId, Long initiatorId) {
-        Relation relation = getRelationByAimAndInitiator(aimId, initiatorId);
-
-        if(relation.getRelationState().equals(RelationState.PENDING)) {
+        pairLocks.withLock(aimId, initiatorId, () -> {
+            Relation relation = getPendingRelation(aimId, initiatorId);
             relation.setRelationState(RelationState.REJECTED);
-            relationsRepository.save(relation);
+            savePendingAnswer(relation);
+            relationGraph.put(initiatorId, aimId, RelationState.REJECTED);
+            publish(RelationEventType.REJECTED, initiatorId, aimId);
+            forgetRelationLoads(aimId, initiatorId);
             logger.info("Rejected relation with ID: {}", relation.getId());
-        } else {
-            throw new NoSuchElementException("Such pending relation was not found.");
-        }
+        });
     }
 
     public void deleteRelation(Long initiatorId, Long relationId) {
@@ -88,26 +285,75 @@ public class RelationService {
         }
 
         Relation relation = getRelationById(relationId);
+        Long relationInitiatorId = relation.getInitiator().getId();
+        Long relationAimId = relation.getAim().getId();
+
+        pairLocks.withLock(relationInitiatorId, relationAimId, () -> {
+            // Read again under the lock, the relation may have changed since.
+            Relation current = getRelationById(relationId);
+
+            if (!current.getRelationState().equals(RelationState.REJECTED)) {
+                throw new NoSuchElementException("Such rejected relation was not found.");
+            }
 
-        if (relation.getRelationState().equals(RelationState.REJECTED)) {
-            relationsRepository.delete(relation);
+            try {
+                relationsRepository.delete(current);
+            } catch (OptimisticLockingFailureException e) {
+                throw new NoSuchElementException("Such rejected relation was not found.");
+            }
+
+            relationGraph.remove(relationInitiatorId, relationAimId);
+            forgetRelationLoads(relationInitiatorId, relationAimId);
             logger.info("Deleted relation with ID: {}", relationId);
-        } else {
-            throw new NoSuchElementException("Such rejected relation was not found.");
-        }
+        });
     }
 
-    public List<Relation> getAllProfileRelations(Long profileId) {
-        List<Relation> allProfileRelationsAsAim = relationsRepository.findAllByAimId(profileId);
-        List<Relation> allProfileRelationsAsInitiator = relationsRepository.findAllByInitiatorId(profileId);
+    /**
+     * Concurrent calls for the same profile share a single database load.
+     */
+    public List<RelationView> getAllProfileRelations(Long profileId) {
+        List<RelationView> relations = relationLoads.execute(
+                profileId,
+                () -> relationsRepository.findViewsByParticipantId(profileId)
+        );
+
+        logger.info("Retrieved {} relations for profile ID: {}", relations.size(), profileId);
+
+        return relations;
+    }
 
-        List<Relation> combinedRelations = new ArrayList<>();
-        combinedRelations.addAll(allProfileRelationsAsAim);
-        combinedRelations.addAll(allProfileRelationsAsInitiator);
+    /**
+     * Same as {@link #getAllProfileRelations(Long)}, reading only the requested fields. Loads are
+     * not shared, since callers rarely ask for the same fields at the same time.
+     */
+    public List<SparseRow> getAllProfileRelations(Long profileId, FieldSet fields) {
+        List<SparseRow> relations = sparseFieldsRepository.findRelationsByParticipant(fields, profileId);
 
-        logger.info("Retrieved {} relations for profile ID: {}", combinedRelations.size(), profileId);
+        logger.info("Retrieved {} relations for profile ID: {}", relations.size(), profileId);
 
-        return combinedRelations;
+        return relations;
+    }
+
+    /**
+     * Returns whether the profile liked the other one, answered or not, from the relation graph.
+     */
+    public boolean likes(Long profileId, Long otherId) {
+        return relationGraph.likes(profileId, otherId);
+    }
+
+    /**
+     * Returns the ids of the profiles whose likes of this profile are still pending, from the
+     * relation graph.
+     */
+    public long[] getLikedByIds(Long profileId) {
+        return relationGraph.likedBy(profileId);
+    }
+
+    /**
+     * Returns the ids of the profiles this profile matched with, from the relation graph.
+     */
+    public long[] getMatchIds(Long profileId) {
+        return relationGraph.matches(profileId);
     }
 
     public Relation getRelationById(Long relationId) {
@@ -116,10 +362,15 @@ public class RelationService {
     }
 
     public Relation getRelationByAimAndInitiator(Long aimId, Long initiatorId) {
-        Profile aim = profileRepository.findById(aimId)
-                .orElseThrow(() -> new NoSuchElementException("Aim profile not found."));
-        Profile initiator = profileRepository.findById(initiatorId)
-                .orElseThrow(() -> new NoSuchElementException("Initiator profile not found."));
+        Profile aim = profileCache.get(aimId);
+        if (aim == null) {
+            throw new NoSuchElementException("Aim profile not found.");
+        }
+
+        Profile initiator = profileCache.get(initiatorId);
+        if (initiator == null) {
+            throw new NoSuchElementException("Initiator profile not found.");
+        }
 
         Relation relation = relationsRepository.findRelationByAimAndInitiator(aim, initiator);
 
@@ -129,5 +380,72 @@ public class RelationService {
 
         return relation;
     }
+
+    private Relation getPendingRelation(Long aimId, Long initiatorId) {
+        Relation relation = getRelationByAimAndInitiator(aimId, initiatorId);
+
+        if (!relation.getRelationState().equals(RelationState.PENDING)) {
+            throw new NoSuchElementException("Such pending relation was not found.");
+        }
+
+        return relation;
+    }
+
+    /**
+     * Saves the answer to a pending relation, failing like a missing one when another instance
+     * changed the relation since it was read.
+     */
+    private void savePendingAnswer(Relation relation) {
+        try {
+            relationsRepository.save(relation);
+        } catch (OptimisticLockingFailureException e) {
+            throw new NoSuchElementException("Such pending relation was not found.");
+        }
+    }
+
+    private List<LikeBatchItem> saveRelationsOneByOne(Long initiatorId, List<Long> aimIds) {
+        List<LikeBatchItem> items = new ArrayList<>();
+
+        for (Long aimId : aimIds) {
+            LikeResult result;
+
+            if (aimId == null) {
+                result = LikeResult.PROFILE_NOT_FOUND;
+            } else if (initiatorId.equals(aimId)) {
+                result = LikeResult.SELF_LIKE;
+            } else {
+                try {
+                    result = saveRelation(initiatorId, aimId);
+                } catch (NoSuchElementException e) {
+                    result = LikeResult.PROFILE_NOT_FOUND;
+                }
+            }
+
+            items.add(new LikeBatchItem(aimId, result));
+        }
+
+        return items;
+    }
+
+    /**
+     * Tells listeners, such as the event streams of both profiles, about a saved relation.
+     */
+    private void publish(RelationEventType type, Long initiatorId, Long aimId) {
+        eventPublisher.publishEvent(new RelationEvent(type, initiatorId, aimId));
+    }
+
+    private void forgetRelationLoads(Long firstProfileId, Long secondProfileId) {
+        forgetRelationLoads(firstProfileId);
+        forgetRelationLoads(secondProfileId);
+    }
+
+    /**
+     * Drops in-flight loads of the relations of the profile before bumping their version, so a
+     * caller that sees the new version also gets a fresh load.
+     */
+    private void forgetRelationLoads(Long profileId) {
+        relationLoads.forget(profileId);
+        contentVersions.relationsChanged(profileId);
+    }
 }
 
@@ -0,0 +1,149 @@
+package org.example.datingapp.snapshots;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.enums.RelationState;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SnapshotReader implements Closeable {
+    private static final long DEFAULT_WINDOW_BYTES = 256L << 20;
+    private static final RelationState[] STATES = RelationState.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long windowBytes;
+    private final long profileCount;
+    private final long relationCount;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long profilesRead;
+    private long relationsRead;
+
+    public SnapshotReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_BYTES);
+    }
+
+    SnapshotReader(Path path, long windowBytes) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowBytes = windowBytes;
+
+        try {
+            ensure(SnapshotWriter.HEADER_BYTES);
+            if (window.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+
+            int formatVersion = window.getInt();
+            if (formatVersion != SnapshotWriter.FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + formatVersion + " in " + path);
+            }
+
+            this.profileCount = window.getLong();
+            this.relationCount = window.getLong();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long profileCount() {
+        return profileCount;
+    }
+
+    public long relationCount() {
+        return relationCount;
+    }
+
+    public boolean hasNextProfile() {
+        return profilesRead < profileCount;
+    }
+
+    public boolean hasNextRelation() {
+        return profilesRead == profileCount && relationsRead < relationCount;
+    }
+
+    public Profile readProfile() throws IOException {
+        if (!hasNextProfile()) {
+            throw new IllegalStateException("No profiles left in " + path);
+        }
+
+        ensure(Long.BYTES);
+        Profile profile = new Profile();
+        profile.setId(window.getLong());
+        profile.setName(readString());
+        profile.setEmail(readString());
+        profile.setPassword(readString());
+        profile.setOpenInfo(readString());
+        profile.setClosedInfo(readString());
+        profilesRead++;
+
+        return profile;
+    }
+
+    public RelationEdge readRelation() throws IOException {
+        if (!hasNextRelation()) {
+            throw new IllegalStateException("No relations left in " + path);
+        }
+
+        ensure(3 * Long.BYTES + 1);
+        long id = window.getLong();
+        long initiatorId = window.getLong();
+        long aimId = window.getLong();
+        int state = window.get();
+        if (state < 0 || state >= STATES.length) {
+            throw new IOException("Unknown relation state " + state + " in " + path);
+        }
+        relationsRead++;
+
+        return new RelationEdge(id, initiatorId, aimId, STATES[state]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The last window stays mapped until it is garbage collected; the JDK offers no way to
+        // unmap it earlier.
+        window = null;
+        channel.close();
+    }
+
+    private String readString() throws IOException {
+        ensure(Integer.BYTES);
+        int length = window.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        ensure(length);
+        byte[] bytes = new byte[length];
+        window.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Maps a new window starting at the current position when the current one does not hold the
+    // next bytes, so a record never straddles two windows.
+    private void ensure(int bytes) throws IOException {
+        if (window != null && window.remaining() >= bytes) {
+            return;
+        }
+
+        long position = window == null ? 0 : windowStart + window.position();
+        if (position + bytes > size) {
+            throw new EOFException("Snapshot " + path + " ends in the middle of a record.");
+        }
+
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, Math.max(windowBytes, bytes)));
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.datingapp.snapshots;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.repositories.ProfileBatchRepository;
+import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.repositories.RelationBatchRepository;
+import org.example.datingapp.services.ProfileService;
+import org.example.datingapp.services.RelationService;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SnapshotStore implements SmartInitializingSingleton, DisposableBean {
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final Path path;
+    private final ProfileRepository profileRepository;
+    private final ProfileBatchRepository profileBatchRepository;
+    private final RelationBatchRepository relationBatchRepository;
+    private final ProfileService profileService;
+    private final RelationService relationService;
+    private final TransactionTemplate loadTransaction;
+    private final TransactionTemplate readTransaction;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Logger logger;
+    // Nothing is written before startup finished, so a failed or skipped load never replaces a
+    // good snapshot with an empty one.
+    private volatile boolean started;
+
+    public SnapshotStore(
+            Path path,
+            ProfileRepository profileRepository,
+            ProfileBatchRepository profileBatchRepository,
+            RelationBatchRepository relationBatchRepository,
+            ProfileService profileService,
+            RelationService relationService,
+            PlatformTransactionManager transactionManager,
+            Logger prototypeLogger
+    ) {
+        this.path = path;
+        this.profileRepository = profileRepository;
+        this.profileBatchRepository = profileBatchRepository;
+        this.relationBatchRepository = relationBatchRepository;
+        this.profileService = profileService;
+        this.relationService = relationService;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        // Profiles and relations are read in separate queries, and a relation must not refer to
+        // a profile registered after the profiles were read.
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.logger = prototypeLogger;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+        started = true;
+    }
+
+    public boolean load() {
+        if (!Files.exists(path)) {
+            logger.info("No snapshot at {}, starting from the database", path);
+            return false;
+        }
+
+        if (profileRepository.count() > 0) {
+            logger.info("Database already holds profiles, not loading the snapshot at {}", path);
+            return false;
+        }
+
+        long start = System.nanoTime();
+        long[] maxIds;
+        long profileCount;
+        long relationCount;
+        try (SnapshotReader reader = new SnapshotReader(path)) {
+            profileCount = reader.profileCount();
+            relationCount = reader.relationCount();
+            maxIds = loadTransaction.execute(status -> restore(reader));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load snapshot " + path, e);
+        }
+
+        profileBatchRepository.restartIdsAfter(maxIds[0]);
+        relationBatchRepository.restartIdsAfter(maxIds[1]);
+        logger.info(
+                "Loaded snapshot with {} profiles and {} relations from {} in {} ms",
+                profileCount,
+                relationCount,
+                path,
+                (System.nanoTime() - start) / 1_000_000
+        );
+
+        profileService.rebuildSearchIndex();
+        relationService.rebuildRelationGraph();
+
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.snapshot.interval}", initialDelayString = "${app.snapshot.interval}")
+    public void writeScheduled() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Scheduled snapshot to {} failed", path, e);
+        }
+    }
+
+    public void write() throws IOException {
+        if (!started) {
+            return;
+        }
+
+        writeLock.lock();
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            long start = System.nanoTime();
+
+            readTransaction.executeWithoutResult(status -> {
+                profileBatchRepository.forEach(writer::writeProfile);
+                relationBatchRepository.forEach(writer::writeRelation);
+            });
+            writer.commit();
+
+            logger.info(
+                    "Wrote snapshot with {} profiles and {} relations to {} in {} ms",
+                    writer.profileCount(),
+                    writer.relationCount(),
+                    path,
+                    (System.nanoTime() - start) / 1_000_000
+            );
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Snapshot to {} at shutdown failed", path, e);
+        }
+    }
+
+    private long[] restore(SnapshotReader reader) {
+        long[] maxIds = new long[2];
+
+        try {
+            List<Profile> profiles = new ArrayList<>(LOAD_BATCH_SIZE);
+            while (reader.hasNextProfile()) {
+                Profile profile = reader.readProfile();
+                profiles.add(profile);
+                maxIds[0] = Math.max(maxIds[0], profile.getId());
+
+                if (profiles.size() == LOAD_BATCH_SIZE || !reader.hasNextProfile()) {
+                    profileBatchRepository.insertAllWithIds(profiles);
+                    profiles.clear();
+                }
+            }
+
+            List<RelationEdge> edges = new ArrayList<>(LOAD_BATCH_SIZE);
+            while (reader.hasNextRelation()) {
+                RelationEdge edge = reader.readRelation();
+                edges.add(edge);
+                maxIds[1] = Math.max(maxIds[1], edge.getId());
+
+                if (edges.size() == LOAD_BATCH_SIZE || !reader.hasNextRelation()) {
+                    relationBatchRepository.insertAllWithIds(edges);
+                    edges.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + path, e);
+        }
+
+        return maxIds;
+    }
+}
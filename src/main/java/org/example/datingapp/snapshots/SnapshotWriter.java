@@ -0,0 +1,134 @@
+package org.example.datingapp.snapshots;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.RelationEdge;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// The file is big-endian: a header with the magic number, the format version and the profile and
+// relation counts, then every profile as its id followed by name, email, password, open and closed
+// information, each a length-prefixed UTF-8 string with -1 for null, then every relation as its
+// id, initiator id, aim id and state ordinal in one byte.
+public class SnapshotWriter implements Closeable {
+    static final int MAGIC = 0x44415350;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Path target;
+    private final Path temporary;
+    private final FileChannel channel;
+    private final DataOutputStream output;
+    private long profileCount;
+    private long relationCount;
+    private boolean committed;
+
+    public SnapshotWriter(Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        this.target = target;
+        this.temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+        this.channel.position(HEADER_BYTES);
+        this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_BYTES));
+    }
+
+    // Throws UncheckedIOException so that it can be handed rows from a callback.
+    public void writeProfile(Profile profile) {
+        if (relationCount > 0) {
+            throw new IllegalStateException("Profiles must be written before relations.");
+        }
+
+        try {
+            output.writeLong(profile.getId());
+            writeString(profile.getName());
+            writeString(profile.getEmail());
+            writeString(profile.getPassword());
+            writeString(profile.getOpenInfo());
+            writeString(profile.getClosedInfo());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        profileCount++;
+    }
+
+    public void writeRelation(RelationEdge edge) {
+        try {
+            output.writeLong(edge.getId());
+            output.writeLong(edge.getInitiatorId());
+            output.writeLong(edge.getAimId());
+            output.writeByte(edge.getRelationState().ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        relationCount++;
+    }
+
+    public long profileCount() {
+        return profileCount;
+    }
+
+    public long relationCount() {
+        return relationCount;
+    }
+
+    public void commit() throws IOException {
+        output.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(profileCount)
+                .putLong(relationCount)
+                .flip();
+        while (header.hasRemaining()) {
+            channel.write(header, HEADER_BYTES - header.remaining());
+        }
+
+        channel.force(true);
+        channel.close();
+        // Records went to a temporary file, so a reader never sees a partly written snapshot.
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
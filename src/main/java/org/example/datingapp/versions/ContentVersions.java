@@ -0,0 +1,82 @@
+package org.example.datingapp.versions;
+
+import org.example.datingapp.graph.RelationGraph;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory versions of what the read endpoints return, used as strong ETags: the version of a
+ * profile, and the version of the relations of a profile together with the profiles on the
+ * other side of them. Versions are drawn from one clock seeded with the start time, so they
+ * never repeat across restarts. Only profiles changed since the last reset are tracked; the
+ * others share the version of that reset, and the map is reset once it grows past its bound.
+ *
+ * <p>Callers take the version before reading the content it describes, and writers bump it
+ * after the write is visible and caches are invalidated, so a tag can only be newer than its
+ * content and never matches content that has changed since.
+ */
+@Component
+public class ContentVersions {
+    private static final int MAX_TRACKED_VERSIONS = 200_000;
+
+    private final ConcurrentMap<Long, Long> profileVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> relationsVersions = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final RelationGraph relationGraph;
+    private volatile long resetVersion = clock.get();
+
+    public ContentVersions(RelationGraph relationGraph) {
+        this.relationGraph = relationGraph;
+    }
+
+    public String profileTag(Long profileId) {
+        return "p" + Long.toString(versionOf(profileVersions, profileId), 36);
+    }
+
+    public String relationsTag(Long profileId) {
+        return "r" + Long.toString(versionOf(relationsVersions, profileId), 36);
+    }
+
+    /**
+     * Records a change of the profile, which also changes its own relation list and those of
+     * every profile it has a relation with, since relations embed both profiles.
+     */
+    public void profileChanged(Long profileId) {
+        bump(profileVersions, profileId);
+        bump(relationsVersions, profileId);
+        relationGraph.forEachRelated(profileId, relatedId -> bump(relationsVersions, relatedId));
+    }
+
+    public void relationsChanged(Long profileId) {
+        bump(relationsVersions, profileId);
+    }
+
+    /**
+     * Changes every version at once, for when the database was written behind the services, for
+     * example by a bulk load.
+     */
+    public void invalidateAll() {
+        // The reset version is published before the maps are cleared, so a reader that finds
+        // no entry always sees a version newer than the cleared one.
+        resetVersion = clock.incrementAndGet();
+        profileVersions.clear();
+        relationsVersions.clear();
+    }
+
+    private long versionOf(ConcurrentMap<Long, Long> versions, Long profileId) {
+        Long version = versions.get(profileId);
+
+        return version != null ? version : resetVersion;
+    }
+
+    private void bump(ConcurrentMap<Long, Long> versions, Long profileId) {
+        if (versions.size() >= MAX_TRACKED_VERSIONS) {
+            invalidateAll();
+        }
+
+        versions.merge(profileId, clock.incrementAndGet(), Math::max);
+    }
+}
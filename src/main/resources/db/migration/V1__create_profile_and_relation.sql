@@ -0,0 +1,29 @@
+CREATE TABLE profile (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255),
+    email       VARCHAR(255),
+    password    VARCHAR(255),
+    open_info   VARCHAR(255),
+    closed_info VARCHAR(255),
+    -- Login, registration and import look profiles up by email, and two profiles may not share one.
+    CONSTRAINT uk_profile_email UNIQUE (email)
+);
+
+CREATE TABLE relation (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    initiator_id   BIGINT,
+    aim_id         BIGINT,
+    relation_state ENUM ('APPROVED', 'PENDING', 'REJECTED'),
+    version        BIGINT NOT NULL,
+    pair_low_id    BIGINT NOT NULL,
+    pair_high_id   BIGINT NOT NULL,
+    -- At most one relation per unordered pair of profiles, whoever initiated it.
+    CONSTRAINT uk_relation_pair UNIQUE (pair_low_id, pair_high_id),
+    CONSTRAINT fk_relation_initiator FOREIGN KEY (initiator_id) REFERENCES profile (id),
+    CONSTRAINT fk_relation_aim FOREIGN KEY (aim_id) REFERENCES profile (id)
+);
+
+-- The relations a profile takes part in are read from either side, often narrowed to one
+-- state, so each side gets its own index leading with the profile id.
+CREATE INDEX idx_relation_initiator_state ON relation (initiator_id, relation_state);
+CREATE INDEX idx_relation_aim_state ON relation (aim_id, relation_state);
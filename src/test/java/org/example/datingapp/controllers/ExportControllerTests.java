@@ -0,0 +1,27 @@
+package org.example.datingapp.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ExportControllerTests {
+    @Autowired
+    private ProfileController profileController;
+
+    @Autowired
+    private RelationController relationController;
+
+    @Test
+    void exportsNeedTheProfileCookie() {
+        assertEquals(HttpStatus.UNAUTHORIZED, profileController.exportProfiles(null, "ndjson").getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, relationController.exportRelations(null, "ndjson").getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, profileController.exportProfiles("abc", "ndjson").getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, relationController.exportRelations("abc", "csv").getStatusCode());
+        assertEquals(HttpStatus.OK, profileController.exportProfiles("1", "csv").getStatusCode());
+        assertEquals(HttpStatus.OK, relationController.exportRelations("1", "ndjson").getStatusCode());
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.datingapp.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ProfileControllerTests {
+    @Autowired
+    private ProfileController profileController;
+
+    @Test
+    void invalidCursorOrSizeIsABadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST, profileController.getProfiles(0, 10, null, "not a cursor!", null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, profileController.getProfiles(0, 10, "tag", "aWQ6Zml2ZQ", null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, profileController.getProfiles(0, 0, null, "", null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, profileController.getProfiles(0, 0, null, null, null).getStatusCode());
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.datingapp.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.datingapp.models.RelationEvent;
+import org.example.datingapp.models.enums.RelationEventType;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelationEventBroadcasterTests {
+    private static final int QUEUE_CAPACITY = 4;
+
+    @Test
+    void stalledSubscriberDoesNotDelayOthers() throws Exception {
+        ThreadPoolExecutor sendExecutor = sendPool(2);
+        RelationEventBroadcaster broadcaster = new RelationEventBroadcaster(
+                sendExecutor, Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofHours(1), QUEUE_CAPACITY,
+                new SimpleMeterRegistry());
+        CountDownLatch stalledSendStarted = new CountDownLatch(1);
+        CountDownLatch releaseStalledSend = new CountDownLatch(1);
+        BlockingQueue<SseEmitter.SseEventBuilder> received = new LinkedBlockingQueue<>();
+
+        try {
+            broadcaster.subscribe(1L, new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) throws IOException {
+                    stalledSendStarted.countDown();
+                    try {
+                        releaseStalledSend.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("Client went away");
+                }
+            });
+            broadcaster.subscribe(1L, new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    received.add(builder);
+                }
+            });
+
+            broadcaster.onRelationEvent(new RelationEvent(RelationEventType.LIKED, 1L, 2L));
+            assertTrue(stalledSendStarted.await(5, TimeUnit.SECONDS));
+            assertNotNull(received.poll(5, TimeUnit.SECONDS));
+
+            for (int i = 1; i < 3 * QUEUE_CAPACITY; i++) {
+                broadcaster.onRelationEvent(new RelationEvent(RelationEventType.LIKED, 1L, 2L + i));
+                assertNotNull(received.poll(5, TimeUnit.SECONDS), "event " + i + " was not delivered");
+            }
+            // The stalled stream overflowed its queue and was dropped without waiting for it.
+            assertEquals(1, broadcaster.subscriberCount());
+        } finally {
+            releaseStalledSend.countDown();
+            broadcaster.destroy();
+            sendExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stalledSendsDoNotHoldTheSharedThreads() throws Exception {
+        ThreadPoolExecutor sendExecutor = sendPool(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RelationEventBroadcaster broadcaster = new RelationEventBroadcaster(
+                sendExecutor, Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofMillis(100), QUEUE_CAPACITY,
+                meterRegistry);
+        CountDownLatch releaseStalledSends = new CountDownLatch(1);
+        BlockingQueue<SseEmitter.SseEventBuilder> received = new LinkedBlockingQueue<>();
+
+        try {
+            // More stalled streams than send threads, and all of them ahead of the healthy one.
+            for (int i = 0; i < 3; i++) {
+                broadcaster.subscribe(1L, new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder builder) throws IOException {
+                        try {
+                            releaseStalledSends.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new IOException("Write timed out");
+                    }
+                });
+            }
+            broadcaster.subscribe(2L, new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    received.add(builder);
+                }
+            });
+
+            broadcaster.onRelationEvent(new RelationEvent(RelationEventType.LIKED, 1L, 2L));
+            assertNotNull(received.poll(5, TimeUnit.SECONDS));
+            assertEquals(1, broadcaster.subscriberCount());
+            assertEquals(3, meterRegistry.counter("app.events.stalls").count());
+            assertEquals(4, sendExecutor.getCorePoolSize());
+
+            // Once the stalled writes return, their borrowed threads are given back.
+            releaseStalledSends.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sendExecutor.getCorePoolSize() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, sendExecutor.getCorePoolSize());
+            assertEquals(1, sendExecutor.getMaximumPoolSize());
+        } finally {
+            releaseStalledSends.countDown();
+            broadcaster.destroy();
+            sendExecutor.shutdownNow();
+        }
+    }
+
+    private static ThreadPoolExecutor sendPool(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.datingapp.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongSetTests {
+    @Test
+    void matchesModelAcrossGrowthRemovalAndTrimming() {
+        LongSet set = new LongSet();
+        TreeSet<Long> model = new TreeSet<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 200000; i++) {
+            // A narrow range keeps probe chains long and removals frequent.
+            long id = 1 + random.nextInt(5000);
+
+            if (random.nextInt(3) == 0) {
+                assertEquals(model.remove(id), set.remove(id));
+            } else {
+                assertEquals(model.add(id), set.add(id));
+            }
+
+            if (i % 50000 == 0) {
+                set.trimToSize();
+            }
+        }
+
+        assertEquals(model.size(), set.size());
+        for (long id = 1; id <= 5000; id++) {
+            assertEquals(model.contains(id), set.contains(id));
+        }
+        assertArrayEquals(model.stream().mapToLong(Long::longValue).toArray(), set.toArray());
+
+        model.forEach(set::remove);
+        set.trimToSize();
+        assertTrue(set.isEmpty());
+        assertEquals(4, set.capacity());
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.datingapp.graph;
+
+import org.example.datingapp.models.enums.RelationState;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RelationGraphTests {
+    @Test
+    void likeIsReplacedByItsAnswer() {
+        RelationGraph graph = new RelationGraph();
+
+        graph.addLike(1, 2);
+        assertTrue(graph.likes(1, 2));
+        assertFalse(graph.likes(2, 1));
+        assertArrayEquals(new long[] {1}, graph.likedBy(2));
+
+        graph.put(1, 2, RelationState.APPROVED);
+        graph.addLike(1, 2);
+        assertArrayEquals(new long[0], graph.likedBy(2));
+        assertArrayEquals(new long[] {2}, graph.matches(1));
+        assertArrayEquals(new long[] {1}, graph.matches(2));
+        assertEquals(1, graph.relationCount());
+
+        graph.remove(2, 1);
+        assertFalse(graph.hasRelation(1, 2));
+        assertEquals(0, graph.relationCount());
+        assertEquals(0, graph.profileCount());
+    }
+
+    @Test
+    void matchesModelAcrossGrowthAndRemoval() {
+        RelationGraph graph = new RelationGraph();
+        Map<Long, RelationState> model = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50000; i++) {
+            long first = 1 + random.nextInt(2000);
+            long second = 1 + random.nextInt(2000);
+            if (first == second) {
+                continue;
+            }
+
+            long pair = Math.min(first, second) * 10000 + Math.max(first, second);
+            if (random.nextInt(4) == 0) {
+                graph.remove(first, second);
+                model.remove(pair);
+            } else {
+                RelationState state = RelationState.values()[random.nextInt(RelationState.values().length)];
+                graph.put(first, second, state);
+                model.put(pair, state);
+            }
+        }
+        graph.trimToSize();
+
+        assertEquals(model.size(), graph.relationCount());
+        model.forEach((pair, state) -> {
+            long low = pair / 10000;
+            long high = pair % 10000;
+            assertTrue(graph.hasRelation(low, high));
+            assertTrue(graph.hasRelation(high, low));
+            assertEquals(state == RelationState.APPROVED, contains(graph.matches(low), high));
+        });
+    }
+
+    @Test
+    void writesDuringRebuildSurviveTheSwap() {
+        RelationGraph graph = new RelationGraph();
+        graph.put(5, 6, RelationState.PENDING);
+
+        graph.rebuild(rebuilt -> {
+            rebuilt.put(1, 2, RelationState.PENDING);
+            rebuilt.put(3, 4, RelationState.PENDING);
+
+            // The old graph keeps serving while the new one fills.
+            assertTrue(graph.likes(5, 6));
+            graph.put(1, 2, RelationState.APPROVED);
+            graph.remove(3, 4);
+            graph.addLike(7, 8);
+        });
+
+        assertArrayEquals(new long[] {2}, graph.matches(1));
+        assertFalse(graph.hasRelation(3, 4));
+        assertTrue(graph.likes(7, 8));
+        assertFalse(graph.hasRelation(5, 6));
+        assertEquals(2, graph.relationCount());
+    }
+
+    @Test
+    void hubTakesLikersInRandomOrder() {
+        RelationGraph graph = new RelationGraph();
+        long[] likers = new long[400000];
+        for (int i = 0; i < likers.length; i++) {
+            likers[i] = i + 2;
+        }
+        Random random = new Random(3);
+        for (int i = likers.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long liker = likers[i];
+            likers[i] = likers[j];
+            likers[j] = liker;
+        }
+
+        for (long liker : likers) {
+            graph.addLike(liker, 1);
+        }
+
+        long[] likedBy = graph.likedBy(1);
+        assertEquals(likers.length, likedBy.length);
+        assertEquals(2, likedBy[0]);
+        assertEquals(likers.length + 1, likedBy[likedBy.length - 1]);
+        assertTrue(graph.likes(likers[0], 1));
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        for (long candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
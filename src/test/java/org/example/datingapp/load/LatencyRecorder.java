@@ -0,0 +1,53 @@
+package org.example.datingapp.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects every latency sample of one endpoint, so that the percentiles are exact rather than
+ * bucketed.
+ */
+class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+    private long rejections;
+    private long errors;
+
+    synchronized void record(long nanos, int status) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+
+        if (status >= 500) {
+            errors++;
+        } else if (status >= 400) {
+            rejections++;
+        }
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    synchronized long rejections() {
+        return rejections;
+    }
+
+    synchronized long errors() {
+        return errors;
+    }
+
+    /**
+     * Returns the latency in nanoseconds that the given fraction of samples does not exceed.
+     */
+    synchronized long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+
+        Arrays.sort(samples, 0, count);
+        int index = (int) Math.ceil(fraction * count) - 1;
+
+        return samples[Math.max(0, Math.min(index, count - 1))];
+    }
+}
@@ -0,0 +1,332 @@
+package org.example.datingapp.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.datingapp.DatingAppApplication;
+import org.example.datingapp.datasets.DatasetGenerator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+
+/**
+ * Replays a mixed workload of browsing, scrolling the feed, searching, liking, approving and
+ * rejecting against the application and reports throughput and p50/p99/p999 latency per
+ * endpoint. Without a baseUrl it starts the application itself on a random port, on an
+ * embedded H2 database seeded by the dataset generator. Run it with:
+ *
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.example.datingapp.load.LoadDriver \
+ *     -Dexec.args="profiles=10000 concurrency=32 warmup=10s duration=60s"
+ * </pre>
+ *
+ * Against an application that is already running, pass baseUrl=http://localhost:8080 and the
+ * profiles count it was seeded with through app.dataset.profile-count. The mix argument sets
+ * the relative weights of the operations, for example
+ * mix=browse:30,feed:15,search:20,like:20,approve:10,reject:5.
+ */
+public class LoadDriver {
+    private static final String[] KEYWORDS = {
+            "hiking", "coffee", "travel", "music", "books", "cooking", "dogs", "running", "yoga",
+            "photography", "jazz", "teacher", "designer", "berlin", "lisbon", "paris",
+    };
+    private static final int PAGE_SIZE = 20;
+    private static final int BROWSE_PAGES = 50;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> profileIdsByUser = new ConcurrentHashMap<>();
+    private final String baseUrl;
+    private final int profiles;
+    private final Map<String, Integer> mix;
+    private volatile boolean recording;
+
+    private LoadDriver(String baseUrl, int profiles, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.profiles = profiles;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        int profiles = Integer.parseInt(options.getOrDefault("profiles", "10000"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "32"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        Duration duration = parseDuration(options.getOrDefault("duration", "60s"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "browse:30,feed:15,search:20,like:20,approve:10,reject:5"));
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("baseUrl");
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(DatingAppApplication.class)
+                    .properties(
+                            "server.port=0",
+                            "app.dataset.profile-count=" + profiles,
+                            "logging.level.PrototypeLogger=WARN"
+                    )
+                    .run();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            new LoadDriver(baseUrl, profiles, mix).run(concurrency, warmup, duration);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private void run(int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        System.out.printf("Running %d workers against %s for %s after %s of warmup%n", concurrency, baseUrl, duration, warmup);
+
+        long deadline = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> work(deadline));
+            }
+
+            Thread.sleep(warmup.toMillis());
+            recording = true;
+        }
+
+        report(duration);
+    }
+
+    private void work(long deadline) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        while (System.nanoTime() < deadline) {
+            int draw = ThreadLocalRandom.current().nextInt(totalWeight);
+            String operation = null;
+            for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+                draw -= entry.getValue();
+                if (draw < 0) {
+                    operation = entry.getKey();
+                    break;
+                }
+            }
+
+            try {
+                switch (operation) {
+                    case "browse" -> browse();
+                    case "feed" -> feed();
+                    case "search" -> search();
+                    case "like" -> like();
+                    case "approve" -> answerPendingLike("approve");
+                    case "reject" -> answerPendingLike("reject");
+                    default -> throw new IllegalArgumentException("Unknown operation: " + operation);
+                }
+            } catch (IOException e) {
+                System.err.println("Request failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void browse() throws IOException, InterruptedException {
+        int page = ThreadLocalRandom.current().nextInt(BROWSE_PAGES);
+        send("GET /api/profiles/all", get("/api/profiles/all?page=" + page + "&size=" + PAGE_SIZE, null));
+    }
+
+    private void feed() throws IOException, InterruptedException {
+        Long profileId = profileIdOf(randomUser());
+        if (profileId != null) {
+            send("GET /api/profiles/feed", get("/api/profiles/feed?size=" + PAGE_SIZE, profileId));
+        }
+    }
+
+    private void search() throws IOException, InterruptedException {
+        String keyword = KEYWORDS[ThreadLocalRandom.current().nextInt(KEYWORDS.length)];
+        String query = "?keyword=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8) + "&size=" + PAGE_SIZE;
+        send("GET /api/profiles/all?keyword", get("/api/profiles/all" + query, null));
+    }
+
+    private void like() throws IOException, InterruptedException {
+        Long profileId = profileIdOf(randomUser());
+        Long aimId = profileIdOf(randomUser());
+        if (profileId == null || aimId == null || profileId.equals(aimId)) {
+            return;
+        }
+
+        // Random pairs often have a relation already, which the endpoint answers with 200 rather
+        // than 201; those are reported on their own line.
+        send(
+                status -> status == 200 ? "POST /api/relations/like/{aimId} existing" : "POST /api/relations/like/{aimId}",
+                post("/api/relations/like/" + aimId, profileId, null)
+        );
+    }
+
+    /**
+     * Lists the relations of a random profile and approves or rejects one of the likes it
+     * received and has not answered yet.
+     */
+    private void answerPendingLike(String answer) throws IOException, InterruptedException {
+        Long profileId = profileIdOf(randomUser());
+        if (profileId == null) {
+            return;
+        }
+
+        HttpResponse<String> response = send("GET /api/relations/all", get("/api/relations/all", profileId));
+        if (response.statusCode() != 200) {
+            return;
+        }
+
+        List<Long> initiatorIds = new ArrayList<>();
+        for (JsonNode relation : objectMapper.readTree(response.body())) {
+            if ("PENDING".equals(relation.path("relationState").asText())
+                    && relation.path("aim").path("id").asLong() == profileId) {
+                initiatorIds.add(relation.path("initiator").path("id").asLong());
+            }
+        }
+
+        if (!initiatorIds.isEmpty()) {
+            Long initiatorId = initiatorIds.get(ThreadLocalRandom.current().nextInt(initiatorIds.size()));
+            send("POST /api/relations/" + answer + "/{initiatorId}", post("/api/relations/" + answer + "/" + initiatorId, profileId, null));
+        }
+    }
+
+    /**
+     * Logs the generated user in the first time it is needed and remembers its profile id.
+     */
+    private Long profileIdOf(int user) throws IOException, InterruptedException {
+        Long profileId = profileIdsByUser.get(user);
+        if (profileId != null) {
+            return profileId;
+        }
+
+        String credentials = objectMapper.writeValueAsString(Map.of(
+                "email", "user" + user + "@example.com",
+                "password", DatasetGenerator.PASSWORD
+        ));
+        HttpResponse<String> response = send("POST /api/profiles/login", post("/api/profiles/login", null, credentials));
+        if (response.statusCode() != 200) {
+            return null;
+        }
+
+        profileId = objectMapper.readTree(response.body()).path("id").asLong();
+        profileIdsByUser.put(user, profileId);
+
+        return profileId;
+    }
+
+    private HttpResponse<String> send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        return send(status -> endpoint, request);
+    }
+
+    /**
+     * Sends the request and records its latency under the endpoint name derived from the status.
+     */
+    private HttpResponse<String> send(IntFunction<String> endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long elapsed = System.nanoTime() - start;
+
+        if (recording) {
+            recorders.computeIfAbsent(endpoint.apply(response.statusCode()), key -> new LatencyRecorder())
+                    .record(elapsed, response.statusCode());
+        }
+
+        return response;
+    }
+
+    private HttpRequest get(String path, Long profileId) {
+        return request(path, profileId).GET().build();
+    }
+
+    private HttpRequest post(String path, Long profileId, String json) {
+        HttpRequest.Builder builder = request(path, profileId);
+
+        if (json == null) {
+            return builder.POST(HttpRequest.BodyPublishers.noBody()).build();
+        }
+
+        return builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, Long profileId) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+
+        if (profileId != null) {
+            builder.header("Cookie", "profileId=" + profileId);
+        }
+
+        return builder;
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(profiles);
+    }
+
+    private void report(Duration duration) {
+        double seconds = duration.toNanos() / 1e9;
+        long total = 0;
+
+        System.out.printf("%n%-48s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "4xx", "5xx", "Req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        for (String endpoint : recorders.keySet().stream().sorted().toList()) {
+            LatencyRecorder recorder = recorders.get(endpoint);
+            total += recorder.count();
+
+            System.out.printf("%-48s %9d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint,
+                    recorder.count(),
+                    recorder.rejections(),
+                    recorder.errors(),
+                    recorder.count() / seconds,
+                    recorder.percentile(0.5) / 1e6,
+                    recorder.percentile(0.99) / 1e6,
+                    recorder.percentile(0.999) / 1e6,
+                    recorder.percentile(1.0) / 1e6);
+        }
+
+        System.out.printf("%-48s %9d %7s %7s %9.1f%n", "Total", total, "", "", total / seconds);
+    }
+
+    private static Duration parseDuration(String value) {
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+
+        for (String part : value.split(",")) {
+            String[] operationAndWeight = part.split(":");
+            mix.put(operationAndWeight[0].trim(), Integer.parseInt(operationAndWeight[1].trim()));
+        }
+
+        return mix;
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.datingapp.locks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PairLocksTests {
+    @Test
+    void heldPairDoesNotBlockOtherPairs() throws Exception {
+        PairLocks pairLocks = new PairLocks();
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<?> holder = executor.submit(() -> pairLocks.withLock(1, 2, () -> {
+                held.countDown();
+                awaitQuietly(release);
+            }));
+            held.await();
+
+            Future<Boolean> other = executor.submit(() -> pairLocks.withLock(1, 3, () -> true));
+            assertTrue(other.get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, pairLocks.size());
+    }
+
+    @Test
+    void bothDirectionsOfAPairRunOneAtATime() throws Exception {
+        PairLocks pairLocks = new PairLocks();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                long first = i % 2 == 0 ? 1 : 2;
+                long second = i % 2 == 0 ? 2 : 1;
+                results.add(executor.submit(() -> pairLocks.withLock(first, second, () -> {
+                    maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    inside.decrementAndGet();
+                })));
+            }
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, maxInside.get());
+        assertEquals(0, pairLocks.size());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
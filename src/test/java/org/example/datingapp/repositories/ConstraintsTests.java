@@ -0,0 +1,49 @@
+package org.example.datingapp.repositories;
+
+import org.example.datingapp.models.Profile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ConstraintsTests {
+    @Autowired
+    private ProfileBatchRepository profileBatchRepository;
+
+    @Test
+    void onlyDuplicateEmailsViolateTheEmailConstraint() {
+        Profile existing = profile(UUID.randomUUID() + "@example.com");
+        profileBatchRepository.insertAll(List.of(existing));
+
+        DataIntegrityViolationException duplicateEmail = assertThrows(
+                DataIntegrityViolationException.class,
+                () -> profileBatchRepository.insertAll(List.of(profile(existing.getEmail())))
+        );
+        Profile sameId = profile(UUID.randomUUID() + "@example.com");
+        sameId.setId(existing.getId());
+        DataIntegrityViolationException duplicateId = assertThrows(
+                DataIntegrityViolationException.class,
+                () -> profileBatchRepository.insertAllWithIds(List.of(sameId))
+        );
+
+        assertTrue(Constraints.isViolated(duplicateEmail, Profile.EMAIL_CONSTRAINT));
+        assertFalse(Constraints.isViolated(duplicateId, Profile.EMAIL_CONSTRAINT));
+    }
+
+    private static Profile profile(String email) {
+        Profile profile = new Profile();
+        profile.setName("Test");
+        profile.setEmail(email);
+        profile.setPassword("password");
+
+        return profile;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.datingapp.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProfileSearchIndexTests {
+    @Test
+    void tokenizerSplitsOnEverythingButLettersAndDigits() {
+        assertEquals(List.of("likes", "hiking", "c", "coffee", "2day", "café"),
+                Tokenizer.tokenize("Likes  Hiking, C++ & coffee_2day! CAFÉ"));
+        assertEquals(List.of(), Tokenizer.tokenize(" ,.! "));
+        assertEquals(List.of(), Tokenizer.tokenize(null));
+    }
+
+    @Test
+    void queryMatchesOnlyProfilesWithEveryTerm() {
+        ProfileSearchIndex index = new ProfileSearchIndex();
+        index.index(1L, "hiking and chess");
+        index.index(2L, "hiking");
+        index.index(3L, "Chess, hiking, coffee");
+        index.index(4L, "chess");
+
+        assertEquals(List.of(1L, 3L), search(index, "chess HIKING"));
+        assertEquals(List.of(3L), search(index, "coffee hiking chess"));
+        assertEquals(List.of(), search(index, "hiking tennis"));
+        assertEquals(List.of(), search(index, "!!"));
+        assertEquals(2, index.search("hiking chess hiking", 0, 10).getTotalMatches());
+    }
+
+    @Test
+    void rarerTermsWeighMoreThanRepeatedCommonOnes() {
+        ProfileSearchIndex index = new ProfileSearchIndex();
+        index.index(1L, "rare common common");
+        index.index(2L, "rare rare common");
+        for (long id = 3; id <= 6; id++) {
+            index.index(id, "common");
+        }
+        index.index(7L, "common common common common");
+
+        // Both match three times, but the second profile has more of the rare term.
+        assertEquals(List.of(2L, 1L), search(index, "rare common"));
+        assertEquals(List.of(7L, 1L, 2L, 3L, 4L, 5L, 6L), search(index, "common"));
+    }
+
+    @Test
+    void updateReplacesTermsAndRemoveForgetsTheProfile() {
+        ProfileSearchIndex index = new ProfileSearchIndex();
+        index.index(1L, "hiking");
+        index.index(2L, "hiking");
+
+        index.index(1L, "chess");
+        assertEquals(List.of(2L), search(index, "hiking"));
+        assertEquals(List.of(1L), search(index, "chess"));
+
+        index.remove(2L);
+        assertEquals(List.of(), search(index, "hiking"));
+        assertEquals(1, index.size());
+
+        index.index(1L, "");
+        assertEquals(List.of(), search(index, "chess"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void rebuildReplaysWritesMadeWhileItLoads() {
+        ProfileSearchIndex index = new ProfileSearchIndex();
+        index.index(1L, "stale");
+
+        index.rebuild(rebuilt -> {
+            rebuilt.index(2L, "tea");
+            rebuilt.index(3L, "tea");
+
+            // The old index keeps serving while the new one fills.
+            assertEquals(List.of(1L), search(index, "stale"));
+            assertThrows(IllegalStateException.class, () -> index.rebuild(other -> { }));
+            index.index(3L, "coffee");
+            index.remove(2L);
+            index.index(4L, "tea");
+        });
+
+        assertEquals(List.of(), search(index, "stale"));
+        assertEquals(List.of(4L), search(index, "tea"));
+        assertEquals(List.of(3L), search(index, "coffee"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void failedRebuildKeepsTheOldIndex() {
+        ProfileSearchIndex index = new ProfileSearchIndex();
+        index.index(1L, "tea");
+
+        assertThrows(IllegalStateException.class, () -> index.rebuild(rebuilt -> {
+            rebuilt.index(2L, "tea");
+            throw new IllegalStateException("Database went away");
+        }));
+        assertEquals(List.of(1L), search(index, "tea"));
+
+        index.rebuild(rebuilt -> rebuilt.index(2L, "tea"));
+        assertEquals(List.of(2L), search(index, "tea"));
+    }
+
+    @Test
+    void pagesSkipMatchesAlreadyReturned() {
+        ProfileSearchIndex index = new ProfileSearchIndex();
+        for (long id = 10; id <= 16; id++) {
+            index.index(id, id % 3 == 0 ? "tea" : "green tea");
+        }
+
+        SearchResult page = index.search("tea", 2, 2);
+        assertEquals(List.of(12L, 13L), page.getIds());
+        assertEquals(7, page.getTotalMatches());
+        assertEquals(List.of(16L), index.search("tea", 6, 2).getIds());
+        assertEquals(List.of(), index.search("tea", 7, 2).getIds());
+
+        assertEquals(List.of(10L, 11L, 13L), index.searchAfter("green tea", 0, 3));
+        assertEquals(List.of(14L, 16L), index.searchAfter("green tea", 13, 3));
+        assertEquals(List.of(), index.searchAfter("green tea", 16, 3));
+    }
+
+    private static List<Long> search(ProfileSearchIndex index, String query) {
+        return index.search(query, 0, 100).getIds();
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.datingapp.services;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.ProfileSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CandidateFeedServiceTests {
+    private static final int FEED_SIZE = 7;
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private RelationService relationService;
+
+    @Autowired
+    private CandidateFeedService candidateFeedService;
+
+    @Test
+    void relatedProfilesAreNeverServed() {
+        Profile viewer = registerProfile();
+        Profile liked = registerProfile();
+        Profile matched = registerProfile();
+        Profile admirer = registerProfile();
+        Profile likedAfterQueueing = registerProfile();
+        Profile matchedAfterQueueing = registerProfile();
+        Profile stranger = registerProfile();
+
+        relationService.saveRelation(viewer.getId(), liked.getId());
+        relationService.saveRelation(matched.getId(), viewer.getId());
+        relationService.approveRelation(viewer.getId(), matched.getId());
+        relationService.saveRelation(admirer.getId(), viewer.getId());
+
+        // The first call fills the queue, so these relations are made after their profiles were queued.
+        List<Long> served = ids(candidateFeedService.nextCandidates(viewer.getId(), 1));
+        relationService.saveRelation(viewer.getId(), likedAfterQueueing.getId());
+        relationService.saveRelation(viewer.getId(), matchedAfterQueueing.getId());
+        relationService.approveRelation(matchedAfterQueueing.getId(), viewer.getId());
+        served.addAll(drain(viewer.getId()));
+
+        assertFalse(served.contains(viewer.getId()));
+        assertFalse(served.contains(liked.getId()));
+        assertFalse(served.contains(matched.getId()));
+        assertFalse(served.contains(admirer.getId()));
+        assertFalse(served.contains(likedAfterQueueing.getId()));
+        assertFalse(served.contains(matchedAfterQueueing.getId()));
+        assertTrue(served.contains(stranger.getId()));
+    }
+
+    @Test
+    void concurrentCallsForOneViewerNeverServeAProfileTwice() throws Exception {
+        Profile viewer = registerProfile();
+        List<Long> strangers = new ArrayList<>();
+        for (int i = 0; i < 3 * FEED_SIZE; i++) {
+            strangers.add(registerProfile().getId());
+        }
+
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return drain(viewer.getId());
+                }));
+            }
+            start.countDown();
+
+            List<Long> served = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                served.addAll(result.get());
+            }
+
+            assertTrue(served.containsAll(strangers));
+            assertEquals(served.size(), new HashSet<>(served).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Long> drain(Long viewerId) {
+        List<Long> served = new ArrayList<>();
+        List<Long> batch;
+        do {
+            batch = ids(candidateFeedService.nextCandidates(viewerId, FEED_SIZE));
+            served.addAll(batch);
+        } while (!batch.isEmpty());
+
+        return served;
+    }
+
+    private static List<Long> ids(List<ProfileSummary> profiles) {
+        List<Long> ids = new ArrayList<>();
+        for (ProfileSummary profile : profiles) {
+            ids.add(profile.getId());
+        }
+
+        return ids;
+    }
+
+    private Profile registerProfile() {
+        String email = UUID.randomUUID() + "@example.com";
+
+        return profileService.registerProfile("Name", email, "password", "Some info", "Closed info");
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.datingapp.services;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.enums.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ExportServiceTests {
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Test
+    void exportedProfilesLeaveOutEmails() {
+        String email = UUID.randomUUID() + "@example.com";
+        Profile profile = profileService.registerProfile("Exported", email, "password", "Some info", "Closed info");
+
+        for (ExportFormat format : ExportFormat.values()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            exportService.exportProfiles(profile.getId(), format, output);
+            String exported = output.toString(StandardCharsets.UTF_8);
+
+            assertTrue(exported.contains("Exported"), format.name());
+            assertFalse(exported.contains(email), format.name());
+            assertFalse(exported.contains("email"), format.name());
+        }
+    }
+}
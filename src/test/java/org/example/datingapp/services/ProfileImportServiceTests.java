@@ -0,0 +1,152 @@
+package org.example.datingapp.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.datingapp.models.ProfileImportError;
+import org.example.datingapp.models.ProfileImportReport;
+import org.example.datingapp.repositories.ProfileBatchRepository;
+import org.example.datingapp.repositories.ProfileRepository;
+import org.example.datingapp.search.ProfileSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+class ProfileImportServiceTests {
+    private static final String EXISTS = "Profile with this email already exists.";
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private ProfileImportService profileImportService;
+
+    @Autowired
+    private ProfileRepository profileRepository;
+
+    @Autowired
+    private ProfileSearchIndex profileSearchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @SpyBean
+    private ProfileBatchRepository profileBatchRepository;
+
+    @Test
+    void reportsEveryRejectedLine() throws IOException {
+        String taken = email();
+        profileService.registerProfile("Name", taken, "password", "Some info", "Closed info");
+        String first = email();
+        String second = email();
+        String tag = "tag" + UUID.randomUUID().toString().replace("-", "");
+
+        // Batches of two, so duplicates are caught both inside a batch and against earlier ones.
+        ProfileImportService importService = new ProfileImportService(
+                profileRepository,
+                profileBatchRepository,
+                profileSearchIndex,
+                objectMapper,
+                2,
+                LoggerFactory.getLogger(ProfileImportService.class)
+        );
+        ProfileImportReport report = importService.importProfiles(lines(
+                line("First", first, tag),
+                "{\"name\": ",
+                "",
+                "[1, 2]",
+                "{\"name\": \"No email\"}",
+                "{\"email\": \"  \"}",
+                line("Same batch", first, tag),
+                line("Existing", taken, tag),
+                line("Second", second, tag),
+                line("Later batch", second, tag)
+        ));
+
+        assertEquals(9, report.getProcessedLines());
+        assertEquals(2, report.getImportedProfiles());
+        assertEquals(7, report.getFailedLines());
+        assertEquals(List.of(
+                "2: Malformed JSON.",
+                "4: Line is not a JSON object.",
+                "5: Email is required.",
+                "6: Email is required.",
+                "7: " + EXISTS,
+                "8: " + EXISTS,
+                "10: " + EXISTS
+        ), errors(report));
+        assertEquals(Set.of(first, second), Set.copyOf(profileRepository.findExistingEmails(List.of(first, second))));
+        assertEquals(2, profileSearchIndex.searchAfter(tag, 0, 10).size());
+    }
+
+    @Test
+    void conflictingBatchIsSavedOneByOne() throws IOException {
+        String imported = email();
+        String raced = email();
+        String tooLong = email();
+        String last = email();
+        doAnswer(invocation -> {
+            // Registered after the batch checked its emails, on another thread so that it commits
+            // outside the transaction of the batch insert.
+            Thread racer = new Thread(() ->
+                    profileService.registerProfile("Name", raced, "password", "Some info", "Closed info"));
+            racer.start();
+            racer.join();
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(profileBatchRepository).insertAll(any());
+
+        ProfileImportReport report = profileImportService.importProfiles(lines(
+                line("Imported", imported, "info"),
+                line("Raced", raced, "info"),
+                line("Too long", tooLong, "x".repeat(300)),
+                line("Last", last, "info")
+        ));
+
+        verify(profileBatchRepository, times(5)).insertAll(any());
+        assertEquals(4, report.getProcessedLines());
+        assertEquals(2, report.getImportedProfiles());
+        assertEquals(List.of(
+                "2: " + EXISTS,
+                "3: Profile violates a database constraint."
+        ), errors(report));
+        assertEquals(Set.of(imported, raced, last),
+                Set.copyOf(profileRepository.findExistingEmails(List.of(imported, raced, tooLong, last))));
+    }
+
+    private static String email() {
+        return UUID.randomUUID() + "@example.com";
+    }
+
+    private static String line(String name, String email, String openInfo) {
+        return "{\"name\": \"" + name + "\", \"email\": \"" + email + "\", \"password\": \"password\", "
+                + "\"openInfo\": \"" + openInfo + "\"}";
+    }
+
+    private static ByteArrayInputStream lines(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> errors(ProfileImportReport report) {
+        List<String> errors = new ArrayList<>();
+        for (ProfileImportError error : report.getErrors()) {
+            errors.add(error.getLine() + ": " + error.getMessage());
+        }
+
+        return errors;
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.datingapp.services;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.ProfileSummary;
+import org.example.datingapp.pagination.CursorPage;
+import org.example.datingapp.pagination.IdCursor;
+import org.example.datingapp.repositories.ProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProfileServiceTests {
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private ProfileRepository profileRepository;
+
+    @Test
+    void pagesCoverEveryProfileOnceInIdOrder() {
+        Profile registered = registerProfile("Some info");
+        long total = profileRepository.count();
+        List<Long> ids = new ArrayList<>();
+
+        Page<ProfileSummary> page;
+        int pageNumber = 0;
+        do {
+            page = profileService.getAllWithPaginationAndKeyword(pageNumber++, 7, null);
+            assertEquals(total, page.getTotalElements());
+            page.forEach(profile -> ids.add(profile.getId()));
+        } while (page.hasNext());
+
+        assertEquals(total, ids.size());
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        assertTrue(ids.contains(registered.getId()));
+        assertTrue(profileService.getAllWithPaginationAndKeyword(pageNumber, 7, "").isEmpty());
+    }
+
+    @Test
+    void keywordPagesFollowRelevance() {
+        String tag = tag();
+        Profile best = registerProfile(tag + " " + tag);
+        List<Long> rest = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rest.add(registerProfile("Likes " + tag).getId());
+        }
+
+        Page<ProfileSummary> first = profileService.getAllWithPaginationAndKeyword(0, 2, tag.toUpperCase());
+        assertEquals(List.of(best.getId(), rest.get(0)), ids(first.getContent()));
+        assertEquals(5, first.getTotalElements());
+        assertEquals(3, first.getTotalPages());
+
+        Page<ProfileSummary> last = profileService.getAllWithPaginationAndKeyword(2, 2, tag);
+        assertEquals(List.of(rest.get(3)), ids(last.getContent()));
+        assertEquals(5, last.getTotalElements());
+
+        Page<ProfileSummary> narrowed = profileService.getAllWithPaginationAndKeyword(1, 2, tag + " likes");
+        assertEquals(rest.subList(2, 4), ids(narrowed.getContent()));
+        assertEquals(4, narrowed.getTotalElements());
+        assertTrue(profileService.getAllWithPaginationAndKeyword(3, 2, tag).getContent().isEmpty());
+    }
+
+    @Test
+    void keywordPagesSkipProfilesDeletedSinceIndexing() {
+        String tag = tag();
+        Profile first = registerProfile(tag);
+        Profile deleted = registerProfile(tag);
+        Profile third = registerProfile(tag);
+        // Deleted behind the service's back, as by another instance, so the index still has it.
+        profileRepository.deleteById(deleted.getId());
+
+        Page<ProfileSummary> page = profileService.getAllWithPaginationAndKeyword(0, 10, tag);
+        assertEquals(List.of(first.getId(), third.getId()), ids(page.getContent()));
+    }
+
+    @Test
+    void invalidPageParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> profileService.getAllWithPaginationAndKeyword(0, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> profileService.getAllWithPaginationAndKeyword(0, -1, "tag"));
+        assertThrows(IllegalArgumentException.class, () -> profileService.getAllWithPaginationAndKeyword(-1, 10, null));
+    }
+
+    @Test
+    void cursorPagesCoverEveryProfileOnceAndEndWithoutCursor() {
+        Profile registered = registerProfile("Some info");
+        List<Long> ids = new ArrayList<>();
+
+        CursorPage<ProfileSummary> page = profileService.getAllAfterCursor("", 7, null);
+        while (page.hasNext()) {
+            assertEquals(7, page.getContent().size());
+            ids.addAll(ids(page.getContent()));
+            page = profileService.getAllAfterCursor(page.getNextCursor(), 7, null);
+        }
+        ids.addAll(ids(page.getContent()));
+
+        assertEquals(profileRepository.count(), ids.size());
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+        assertTrue(ids.contains(registered.getId()));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void keywordCursorEndsExactlyAtTheLastMatch() {
+        String tag = tag();
+        List<Long> tagged = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tagged.add(registerProfile(tag).getId());
+        }
+
+        CursorPage<ProfileSummary> first = profileService.getAllAfterCursor(null, 2, tag);
+        assertEquals(tagged.subList(0, 2), ids(first.getContent()));
+        assertEquals(IdCursor.encode(tagged.get(1)), first.getNextCursor());
+
+        CursorPage<ProfileSummary> last = profileService.getAllAfterCursor(first.getNextCursor(), 2, tag);
+        assertEquals(tagged.subList(2, 4), ids(last.getContent()));
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void keywordCursorSkipsProfilesDeletedSinceIndexing() {
+        String tag = tag();
+        List<Long> tagged = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tagged.add(registerProfile(tag).getId());
+        }
+        profileRepository.deleteById(tagged.get(0));
+        profileRepository.deleteById(tagged.get(1));
+        profileRepository.deleteById(tagged.get(3));
+
+        // The first page holds only deleted profiles, yet the cursor still leads to the rest.
+        CursorPage<ProfileSummary> first = profileService.getAllAfterCursor(null, 2, tag);
+        assertEquals(List.of(), ids(first.getContent()));
+        assertEquals(IdCursor.encode(tagged.get(1)), first.getNextCursor());
+
+        CursorPage<ProfileSummary> last = profileService.getAllAfterCursor(first.getNextCursor(), 2, tag);
+        assertEquals(List.of(tagged.get(2)), ids(last.getContent()));
+        assertEquals(IdCursor.encode(tagged.get(3)), last.getNextCursor());
+        assertEquals(List.of(tagged.get(4)), ids(profileService.getAllAfterCursor(last.getNextCursor(), 2, tag).getContent()));
+    }
+
+    @Test
+    void invalidCursorParametersAreRejected() {
+        String foreignCursor = Base64.getUrlEncoder().encodeToString("page:5".getBytes(StandardCharsets.UTF_8));
+        String nonNumericCursor = Base64.getUrlEncoder().encodeToString("id:five".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : List.of("not a cursor!", foreignCursor, nonNumericCursor)) {
+            assertThrows(IllegalArgumentException.class, () -> profileService.getAllAfterCursor(cursor, 10, null));
+            assertThrows(IllegalArgumentException.class, () -> profileService.getAllAfterCursor(cursor, 10, "tag"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> profileService.getAllAfterCursor(null, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> profileService.getAllAfterCursor("", -1, "tag"));
+    }
+
+    private static List<Long> ids(List<ProfileSummary> profiles) {
+        List<Long> ids = new ArrayList<>();
+        for (ProfileSummary profile : profiles) {
+            ids.add(profile.getId());
+        }
+
+        return ids;
+    }
+
+    private static String tag() {
+        return "tag" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private Profile registerProfile(String openInfo) {
+        String email = UUID.randomUUID() + "@example.com";
+
+        return profileService.registerProfile("Name", email, "password", openInfo, "Closed info");
+    }
+}
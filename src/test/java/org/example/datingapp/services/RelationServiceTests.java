@@ -0,0 +1,373 @@
+package org.example.datingapp.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.datingapp.fields.FieldSet;
+import org.example.datingapp.fields.SparseRow;
+import org.example.datingapp.models.LikeBatchItem;
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.ProfileSummary;
+import org.example.datingapp.models.Relation;
+import org.example.datingapp.models.RelationView;
+import org.example.datingapp.models.enums.LikeResult;
+import org.example.datingapp.models.enums.RelationState;
+import org.example.datingapp.repositories.RelationBatchRepository;
+import org.example.datingapp.repositories.SparseFieldsRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RelationServiceTests {
+    private static final int ADMIRERS = 20;
+
+    @Autowired
+    private ProfileService profileService;
+
+    @Autowired
+    private RelationService relationService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private RelationBatchRepository relationBatchRepository;
+
+    private Statistics statistics;
+    private Profile popular;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        popular = registerProfile();
+
+        for (int i = 0; i < ADMIRERS; i++) {
+            Profile admirer = registerProfile();
+            relationService.saveRelation(admirer.getId(), popular.getId());
+
+            if (i % 2 == 0) {
+                relationService.saveRelation(popular.getId(), admirer.getId());
+            }
+        }
+        for (int i = 0; i < ADMIRERS / 2; i++) {
+            relationService.saveRelation(popular.getId(), registerProfile().getId());
+        }
+
+        statistics.clear();
+    }
+
+    @Test
+    void getAllProfileRelationsLoadsBothDirectionsInOneStatement() {
+        List<RelationView> relations = relationService.getAllProfileRelations(popular.getId());
+
+        assertEquals(ADMIRERS + ADMIRERS / 2, relations.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getAllApprovedProfilesSelectsOnlyApprovedCounterparts() {
+        Page<ProfileSummary> approved = profileService.getAllApprovedProfiles(popular.getId(), 0, ADMIRERS);
+
+        assertEquals(ADMIRERS / 2, approved.getTotalElements());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void closedInfoIsOnlyReadForApprovedRelations() {
+        for (RelationView relation : relationService.getAllProfileRelations(popular.getId())) {
+            boolean approved = relation.getRelationState() == RelationState.APPROVED;
+
+            assertEquals(approved, relation.getInitiator().getClosedInfo() != null);
+            assertEquals(approved, relation.getAim().getClosedInfo() != null);
+        }
+    }
+
+    @Test
+    void sparseClosedInfoIsOnlyReadForApprovedRelations() {
+        Profile rejecter = registerProfile();
+        relationService.saveRelation(popular.getId(), rejecter.getId());
+        relationService.rejectRelation(rejecter.getId(), popular.getId());
+
+        Map<Long, RelationState> states = new HashMap<>();
+        for (RelationView relation : relationService.getAllProfileRelations(popular.getId())) {
+            states.put(relation.getId(), relation.getRelationState());
+        }
+        assertTrue(states.containsValue(RelationState.PENDING));
+        assertTrue(states.containsValue(RelationState.REJECTED));
+
+        FieldSet fields = FieldSet.parse("initiator,aim", SparseFieldsRepository.RELATION_FIELDS);
+        List<SparseRow> rows = relationService.getAllProfileRelations(popular.getId(), fields);
+
+        assertEquals(states.size(), rows.size());
+        for (SparseRow row : rows) {
+            boolean approved = states.get(row.getId()) == RelationState.APPROVED;
+
+            assertEquals(List.of("initiator", "aim"), List.copyOf(row.getValues().keySet()));
+            for (String side : List.of("initiator", "aim")) {
+                Map<?, ?> profile = (Map<?, ?>) row.getValues().get(side);
+                assertEquals(approved, profile.containsKey("closedInfo"));
+                assertTrue(profile.containsKey("openInfo"));
+            }
+        }
+    }
+
+    @Test
+    void unknownSparseRelationFieldIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FieldSet.parse("initiator,password", SparseFieldsRepository.RELATION_FIELDS));
+
+        // The repository checks again; its exceptions are translated on the way out.
+        FieldSet profileFields = FieldSet.parse("closedInfo", SparseFieldsRepository.MATCHED_PROFILE_FIELDS);
+        InvalidDataAccessApiUsageException e = assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> relationService.getAllProfileRelations(popular.getId(), profileFields));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void concurrentAnswersToOneLikeApplyOnlyOnce() throws Exception {
+        Profile initiator = registerProfile();
+        Profile aim = registerProfile();
+        relationService.saveRelation(initiator.getId(), aim.getId());
+
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Boolean>> answers = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                boolean approve = i % 2 == 0;
+                answers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        if (approve) {
+                            relationService.approveRelation(aim.getId(), initiator.getId());
+                        } else {
+                            relationService.rejectRelation(aim.getId(), initiator.getId());
+                        }
+                        return true;
+                    } catch (NoSuchElementException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int applied = 0;
+            for (Future<Boolean> answer : answers) {
+                applied += answer.get() ? 1 : 0;
+            }
+            assertEquals(1, applied);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Relation relation = relationService.getRelationByAimAndInitiator(aim.getId(), initiator.getId());
+        long[] expectedMatches = relation.getRelationState() == RelationState.APPROVED
+                ? new long[] {aim.getId()}
+                : new long[0];
+        assertArrayEquals(expectedMatches, relationService.getMatchIds(initiator.getId()));
+    }
+
+    @Test
+    void likeOfAnAnsweredLikeKeepsTheAnswer() {
+        Profile matched = registerProfile();
+        Profile rejecter = registerProfile();
+        relationService.saveRelation(popular.getId(), matched.getId());
+        relationService.approveRelation(matched.getId(), popular.getId());
+        relationService.saveRelation(popular.getId(), rejecter.getId());
+        relationService.rejectRelation(rejecter.getId(), popular.getId());
+
+        assertEquals(LikeResult.ALREADY_EXISTS, relationService.saveRelation(matched.getId(), popular.getId()));
+        assertEquals(LikeResult.ALREADY_EXISTS, relationService.saveRelation(rejecter.getId(), popular.getId()));
+        assertEquals(LikeResult.ALREADY_EXISTS, relationService.saveRelation(popular.getId(), rejecter.getId()));
+
+        assertEquals(RelationState.APPROVED,
+                relationService.getRelationByAimAndInitiator(matched.getId(), popular.getId()).getRelationState());
+        assertEquals(RelationState.REJECTED,
+                relationService.getRelationByAimAndInitiator(rejecter.getId(), popular.getId()).getRelationState());
+    }
+
+    @Test
+    void batchReportsTheOutcomeOfEveryItem() {
+        Profile fresh = registerProfile();
+        Profile admirer = registerProfile();
+        Profile liked = registerProfile();
+        Profile matched = registerProfile();
+        Profile rejecter = registerProfile();
+        relationService.saveRelation(admirer.getId(), popular.getId());
+        relationService.saveRelation(popular.getId(), liked.getId());
+        relationService.saveRelation(matched.getId(), popular.getId());
+        relationService.approveRelation(popular.getId(), matched.getId());
+        relationService.saveRelation(popular.getId(), rejecter.getId());
+        relationService.rejectRelation(rejecter.getId(), popular.getId());
+
+        List<Long> aimIds = Arrays.asList(
+                fresh.getId(),
+                admirer.getId(),
+                liked.getId(),
+                matched.getId(),
+                rejecter.getId(),
+                popular.getId(),
+                Long.MAX_VALUE,
+                null
+        );
+        List<LikeBatchItem> items = relationService.saveRelations(popular.getId(), aimIds);
+
+        verify(relationBatchRepository).saveLikes(popular.getId(), List.of(fresh.getId()), List.of(
+                relationService.getRelationByAimAndInitiator(popular.getId(), admirer.getId()).getId()
+        ));
+        assertEquals(aimIds, aimIds(items));
+        assertEquals(List.of(
+                LikeResult.CREATED,
+                LikeResult.MATCHED,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.SELF_LIKE,
+                LikeResult.PROFILE_NOT_FOUND,
+                LikeResult.PROFILE_NOT_FOUND
+        ), results(items));
+        assertEquals(RelationState.PENDING,
+                relationService.getRelationByAimAndInitiator(fresh.getId(), popular.getId()).getRelationState());
+        assertEquals(RelationState.APPROVED,
+                relationService.getRelationByAimAndInitiator(popular.getId(), admirer.getId()).getRelationState());
+        assertEquals(RelationState.REJECTED,
+                relationService.getRelationByAimAndInitiator(rejecter.getId(), popular.getId()).getRelationState());
+    }
+
+    @Test
+    void repeatedAimInOneBatchIsSavedOnce() {
+        Profile fresh = registerProfile();
+        Profile admirer = registerProfile();
+        relationService.saveRelation(admirer.getId(), popular.getId());
+
+        List<LikeBatchItem> items = relationService.saveRelations(popular.getId(), List.of(
+                fresh.getId(),
+                admirer.getId(),
+                fresh.getId(),
+                admirer.getId()
+        ));
+
+        assertEquals(List.of(
+                LikeResult.CREATED,
+                LikeResult.MATCHED,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.ALREADY_EXISTS
+        ), results(items));
+        assertEquals(List.of(LikeResult.ALREADY_EXISTS, LikeResult.ALREADY_EXISTS), results(
+                relationService.saveRelations(popular.getId(), List.of(fresh.getId(), admirer.getId()))
+        ));
+        assertEquals(RelationState.APPROVED,
+                relationService.getRelationByAimAndInitiator(popular.getId(), admirer.getId()).getRelationState());
+    }
+
+    @Test
+    void batchOverTheLimitIsRejected() {
+        List<Long> aimIds = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            aimIds.add(Long.MAX_VALUE - i);
+        }
+
+        assertEquals(1000, relationService.saveRelations(popular.getId(), aimIds).size());
+
+        aimIds.add(Long.MAX_VALUE - 1000);
+        assertThrows(IllegalArgumentException.class, () -> relationService.saveRelations(popular.getId(), aimIds));
+        assertThrows(NoSuchElementException.class,
+                () -> relationService.saveRelations(Long.MAX_VALUE, List.of(popular.getId())));
+    }
+
+    @Test
+    void conflictingBatchSettlesEveryLikeOneByOne() {
+        Profile fresh = registerProfile();
+        Profile admirer = registerProfile();
+        Profile liked = registerProfile();
+        Profile matched = registerProfile();
+        Profile rejecter = registerProfile();
+        relationService.saveRelation(admirer.getId(), popular.getId());
+        relationService.saveRelation(popular.getId(), liked.getId());
+        relationService.saveRelation(matched.getId(), popular.getId());
+        relationService.approveRelation(popular.getId(), matched.getId());
+        relationService.saveRelation(popular.getId(), rejecter.getId());
+        relationService.rejectRelation(rejecter.getId(), popular.getId());
+
+        doThrow(new DataIntegrityViolationException("Concurrent write"))
+                .doCallRealMethod()
+                .when(relationBatchRepository).saveLikes(any(), any(), any());
+
+        List<LikeBatchItem> items = relationService.saveRelations(popular.getId(), List.of(
+                fresh.getId(),
+                admirer.getId(),
+                liked.getId(),
+                matched.getId(),
+                rejecter.getId(),
+                fresh.getId(),
+                popular.getId(),
+                Long.MAX_VALUE
+        ));
+
+        verify(relationBatchRepository).saveLikes(any(), any(), any());
+        assertEquals(List.of(
+                LikeResult.CREATED,
+                LikeResult.MATCHED,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.ALREADY_EXISTS,
+                LikeResult.SELF_LIKE,
+                LikeResult.PROFILE_NOT_FOUND
+        ), results(items));
+        assertEquals(RelationState.REJECTED,
+                relationService.getRelationByAimAndInitiator(rejecter.getId(), popular.getId()).getRelationState());
+    }
+
+    private static List<Long> aimIds(List<LikeBatchItem> items) {
+        List<Long> aimIds = new ArrayList<>();
+        for (LikeBatchItem item : items) {
+            aimIds.add(item.getAimId());
+        }
+
+        return aimIds;
+    }
+
+    private static List<LikeResult> results(List<LikeBatchItem> items) {
+        List<LikeResult> results = new ArrayList<>();
+        for (LikeBatchItem item : items) {
+            results.add(item.getResult());
+        }
+
+        return results;
+    }
+
+    private Profile registerProfile() {
+        String email = UUID.randomUUID() + "@example.com";
+
+        return profileService.registerProfile("Name", email, "password", "Some info", "Closed info");
+    }
+}
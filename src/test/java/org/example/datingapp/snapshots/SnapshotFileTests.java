@@ -0,0 +1,93 @@
+package org.example.datingapp.snapshots;
+
+import org.example.datingapp.models.Profile;
+import org.example.datingapp.models.RelationEdge;
+import org.example.datingapp.models.enums.RelationState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFileTests {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readerReturnsWhatWriterWroteAcrossWindows() throws IOException {
+        Path path = directory.resolve("data.snapshot");
+
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            for (long id = 1; id <= 100; id++) {
+                writer.writeProfile(profile(id, id % 10 == 0 ? null : "Zoë " + id));
+            }
+            for (long id = 1; id <= 50; id++) {
+                writer.writeRelation(new RelationEdge(id, id, id + 1, RelationState.values()[(int) (id % 3)]));
+            }
+            writer.commit();
+        }
+
+        // A window smaller than most profiles makes the reader remap for nearly every record.
+        try (SnapshotReader reader = new SnapshotReader(path, 32)) {
+            assertEquals(100, reader.profileCount());
+            assertEquals(50, reader.relationCount());
+
+            for (long id = 1; id <= 100; id++) {
+                Profile profile = reader.readProfile();
+                assertEquals(id, profile.getId());
+                if (id % 10 == 0) {
+                    assertNull(profile.getName());
+                } else {
+                    assertEquals("Zoë " + id, profile.getName());
+                }
+                assertEquals("user" + id + "@example.com", profile.getEmail());
+            }
+            for (long id = 1; id <= 50; id++) {
+                RelationEdge edge = reader.readRelation();
+                assertEquals(id, edge.getId());
+                assertEquals(id + 1, edge.getAimId());
+                assertEquals(RelationState.values()[(int) (id % 3)], edge.getRelationState());
+            }
+            assertFalse(reader.hasNextRelation());
+        }
+    }
+
+    @Test
+    void uncommittedWriterLeavesPreviousSnapshot() throws IOException {
+        Path path = directory.resolve("data.snapshot");
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            writer.writeProfile(profile(1, "First"));
+            writer.commit();
+        }
+
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            writer.writeProfile(profile(2, "Second"));
+        }
+
+        try (SnapshotReader reader = new SnapshotReader(path)) {
+            assertEquals(1, reader.profileCount());
+            assertEquals("First", reader.readProfile().getName());
+        }
+        try (var files = Files.list(directory)) {
+            assertTrue(files.allMatch(path::equals));
+        }
+    }
+
+    private static Profile profile(long id, String name) {
+        Profile profile = new Profile();
+        profile.setId(id);
+        profile.setName(name);
+        profile.setEmail("user" + id + "@example.com");
+        profile.setPassword("password");
+        profile.setOpenInfo("Open " + id);
+        profile.setClosedInfo(null);
+
+        return profile;
+    }
+}
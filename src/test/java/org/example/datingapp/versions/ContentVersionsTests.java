@@ -0,0 +1,39 @@
+package org.example.datingapp.versions;
+
+import org.example.datingapp.graph.RelationGraph;
+import org.example.datingapp.models.enums.RelationState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ContentVersionsTests {
+    @Test
+    void profileChangeInvalidatesRelationListsOfRelatedProfilesOnly() {
+        RelationGraph relationGraph = new RelationGraph();
+        relationGraph.put(1L, 2L, RelationState.APPROVED);
+        ContentVersions contentVersions = new ContentVersions(relationGraph);
+
+        String profileTag = contentVersions.profileTag(1L);
+        String ownRelationsTag = contentVersions.relationsTag(1L);
+        String relatedTag = contentVersions.relationsTag(2L);
+        String unrelatedTag = contentVersions.relationsTag(3L);
+
+        contentVersions.profileChanged(1L);
+
+        assertNotEquals(profileTag, contentVersions.profileTag(1L));
+        assertNotEquals(ownRelationsTag, contentVersions.relationsTag(1L));
+        assertNotEquals(relatedTag, contentVersions.relationsTag(2L));
+        assertEquals(unrelatedTag, contentVersions.relationsTag(3L));
+    }
+
+    @Test
+    void invalidateAllChangesUntrackedVersionsToo() {
+        ContentVersions contentVersions = new ContentVersions(new RelationGraph());
+        String tag = contentVersions.profileTag(1L);
+
+        contentVersions.invalidateAll();
+
+        assertNotEquals(tag, contentVersions.profileTag(1L));
+    }
+}